@@ -0,0 +1,107 @@
+package bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 进程内的假 Minecraft 服务器，只实现 Server List Ping：
+ * 握手 → 状态请求 → 返回固定的状态 JSON → ping/pong
+ * 监听 127.0.0.1 的随机端口，基准测试不依赖网络
+ */
+final class FakeStatusServer implements AutoCloseable {
+
+    static final String STATUS_JSON = "{\"version\":{\"name\":\"1.20.4\",\"protocol\":765},"
+            + "\"players\":{\"max\":100,\"online\":7},"
+            + "\"description\":{\"text\":\"Hello \",\"color\":\"gold\",\"extra\":[{\"text\":\"World\",\"bold\":true}]}}";
+
+    private final ServerSocket socket;
+    private final byte[] statusPacket;
+
+    FakeStatusServer() throws IOException {
+        socket = new ServerSocket(0, 256, InetAddress.getLoopbackAddress());
+        statusPacket = buildStatusPacket();
+        Thread.ofPlatform().daemon().name("fake-mc-accept").start(this::acceptLoop);
+    }
+
+    int port() {
+        return socket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private void acceptLoop() {
+        while (!socket.isClosed()) {
+            try {
+                Socket client = socket.accept();
+                Thread.startVirtualThread(() -> handle(client));
+            } catch (IOException e) {
+                return; // 已关闭
+            }
+        }
+    }
+
+    private void handle(Socket client) {
+        try (client) {
+            client.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(client.getInputStream());
+            OutputStream out = client.getOutputStream();
+            readPacket(in); // 握手
+            readPacket(in); // 状态请求
+            out.write(statusPacket);
+            out.flush();
+            byte[] ping = readPacket(in); // ping：原样返回 payload 作为 pong
+            writeVarInt(out, ping.length);
+            out.write(ping);
+            out.flush();
+        } catch (IOException ignored) {
+            // 客户端提前断开
+        }
+    }
+
+    private static byte[] readPacket(DataInputStream in) throws IOException {
+        byte[] data = new byte[readVarInt(in)];
+        in.readFully(data);
+        return data;
+    }
+
+    private static byte[] buildStatusPacket() throws IOException {
+        byte[] json = STATUS_JSON.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeVarInt(body, 0x00);
+        writeVarInt(body, json.length);
+        body.write(json);
+        ByteArrayOutputStream packet = new ByteArrayOutputStream();
+        writeVarInt(packet, body.size());
+        body.writeTo(packet);
+        return packet.toByteArray();
+    }
+
+    private static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new IOException("EOF");
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("VarInt too big");
+    }
+
+    private static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
@@ -0,0 +1,55 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 地址解析：parseHostPort 和 isValidIP
+ * 需要 SRV 的域名事先写入 SRV 缓存，测的是解析本身而不是 DNS
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({
+            "127.0.0.1:25565",              // IPv4 + 端口
+            "[2001:db8::1]:25565",          // IPv6（方括号）+ 端口
+            "[2001:db8:0:0:0:0:0:1]",       // 完整 IPv6，无端口
+            "mc.example.com:25565",         // 域名 + 端口，不查 SRV
+            "play.example.net"              // 域名无端口 → SRV（缓存命中）
+    })
+    public String address;
+
+    @Param({"192.168.1.100", "2001:db8:0:0:0:0:0:1", "play.example.net"})
+    public String host;
+
+    @Setup
+    public void setup() {
+        Targets.primeSrv("play.example.net", "mc.example.net", 25570);
+    }
+
+    @Benchmark
+    public Object parseHostPort() throws Throwable {
+        return (Object) Targets.PARSE_HOST_PORT.invokeExact((Object) address);
+    }
+
+    @Benchmark
+    public boolean isValidIP() throws Throwable {
+        return (boolean) Targets.IS_VALID_IP.invokeExact((Object) host);
+    }
+}
@@ -0,0 +1,66 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端：queryServerResult 对进程内假服务器发起一次完整 ping，并生成 JSON
+ * 单线程测延迟，多线程测同时查询时的吞吐
+ */
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PingBenchmark {
+
+    @Param({"nio", "legacy"})
+    public String engine;
+
+    private FakeStatusServer server;
+    private int port;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = new FakeStatusServer();
+        port = server.port();
+        Targets.useEngine(engine);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Benchmark
+    public byte[] query() throws Throwable {
+        return ping();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public byte[] queryConcurrent() throws Throwable {
+        return ping();
+    }
+
+    private byte[] ping() throws Throwable {
+        Object result = (Object) Targets.QUERY.invokeExact((Object) "127.0.0.1", port);
+        return (byte[]) (Object) Targets.JSON_BYTES.invokeExact(result);
+    }
+}
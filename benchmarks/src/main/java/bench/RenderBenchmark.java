@@ -0,0 +1,70 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MOTD 相关的文本处理：Motd 解析、escapeJson、MotdFormatter（直接渲染 / 命中缓存）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RenderBenchmark {
+
+    /** 典型的 MOTD：短纯文本 / 带颜色的聊天组件 JSON / 多行带转义字符的长文本 */
+    @Param({"plain", "component", "long"})
+    public String motd;
+
+    private String raw;
+
+    @Setup
+    public void setup() {
+        switch (motd) {
+            case "plain" -> raw = "A Minecraft Server";
+            case "component" -> raw = "{\"text\":\"Hello \",\"color\":\"gold\",\"extra\":["
+                    + "{\"text\":\"World\",\"bold\":true},{\"text\":\"\\n\\u00a7aSurvival \\\"SMP\\\"\",\"color\":\"green\"}]}";
+            default -> {
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < 20; i++) {
+                    sb.append("§").append(Integer.toHexString(i % 16)).append("Line ").append(i)
+                            .append(" \"quoted\" \\ tab\t中文\n");
+                }
+                raw = sb.toString();
+            }
+        }
+    }
+
+    @Benchmark
+    public Object parseMotd() throws Throwable {
+        return Targets.MOTD_PARSE.invokeExact((Object) raw);
+    }
+
+    @Benchmark
+    public String escapeJson() throws Throwable {
+        return (String) (Object) Targets.ESCAPE_JSON.invokeExact((Object) raw);
+    }
+
+    @Benchmark
+    public Object renderMotd() throws Throwable {
+        return Targets.MOTD_RENDER.invokeExact((Object) raw);
+    }
+
+    @Benchmark
+    public String renderMotdCached() throws Throwable {
+        return (String) (Object) Targets.MOTD_HTML.invokeExact((Object) raw);
+    }
+}
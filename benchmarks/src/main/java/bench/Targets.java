@@ -0,0 +1,105 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+
+/**
+ * 被测方法的句柄
+ * 项目代码位于默认包，无法从 bench 包直接引用，这里通过 MethodHandle 调用
+ * （static final 句柄会被 JIT 内联，开销可以忽略）
+ */
+final class Targets {
+
+    private Targets() {}
+
+    static final Class<?> MAIN = load("Main");
+    static final Class<?> HOST_PORT = load("Main$HostPort");
+    static final Class<?> SERVER_RESULT = load("ServerResult");
+
+    /** Object parseHostPort(String) */
+    static final MethodHandle PARSE_HOST_PORT = find(MAIN, "parseHostPort",
+            MethodType.methodType(HOST_PORT, String.class));
+    /** boolean isValidIP(String) */
+    static final MethodHandle IS_VALID_IP = find(MAIN, "isValidIP",
+            MethodType.methodType(boolean.class, String.class));
+    /** String escapeJson(String) */
+    static final MethodHandle ESCAPE_JSON = find(MAIN, "escapeJson",
+            MethodType.methodType(String.class, String.class));
+    /** Object Motd.parse(String)（流式解析 JSON 组件 / § 代码） */
+    static final MethodHandle MOTD_PARSE = find(load("Motd"), "parse",
+            MethodType.methodType(load("Motd"), String.class));
+    /** String MotdFormatter.html(String)（经过缓存） */
+    static final MethodHandle MOTD_HTML = find(load("MotdFormatter"), "html",
+            MethodType.methodType(String.class, String.class));
+    /** Object MotdFormatter.renderUncached(String) */
+    static final MethodHandle MOTD_RENDER = find(load("MotdFormatter"), "renderUncached",
+            MethodType.methodType(load("MotdFormatter$Rendered"), String.class));
+    /** Object queryServerResult(String, int) */
+    static final MethodHandle QUERY = find(MAIN, "queryServerResult",
+            MethodType.methodType(SERVER_RESULT, String.class, int.class));
+    /** byte[] ServerResult.jsonBytes() */
+    static final MethodHandle JSON_BYTES = virtual(SERVER_RESULT, "jsonBytes",
+            MethodType.methodType(byte[].class));
+
+    /** 切换 ping 实现："nio" 或 "legacy" */
+    static void useEngine(String engine) {
+        try {
+            Class<?> pinger = load("Pinger");
+            Object instance = lookup(pinger)
+                    .findStatic(pinger, "create", MethodType.methodType(pinger, String.class))
+                    .invoke(engine);
+            VarHandle field = lookup(MAIN).findStaticVarHandle(MAIN, "pinger", pinger);
+            field.setVolatile(instance);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /** 预先写入 SRV 缓存，让域名解析走缓存而不访问网络 */
+    static void primeSrv(String domain, String targetHost, int targetPort) {
+        try {
+            Object target = lookup(HOST_PORT)
+                    .findConstructor(HOST_PORT, MethodType.methodType(void.class, String.class, int.class))
+                    .invoke(targetHost, targetPort);
+            Class<?> resolver = load("SrvResolver");
+            lookup(resolver)
+                    .findStatic(resolver, "prime", MethodType.methodType(void.class, String.class, HOST_PORT, long.class))
+                    .invoke(domain, target, 3600L);
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("MCServerInfo classes not on classpath: " + name, e);
+        }
+    }
+
+    private static MethodHandles.Lookup lookup(Class<?> cls) throws IllegalAccessException {
+        // 项目类都是包私有的，需要私有查找
+        return MethodHandles.privateLookupIn(cls, MethodHandles.lookup());
+    }
+
+    /** 静态方法，参数和返回值中的项目类型擦除为 Object */
+    private static MethodHandle find(Class<?> cls, String name, MethodType type) {
+        try {
+            return lookup(cls).findStatic(cls, name, type).asType(type.erase());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle virtual(Class<?> cls, String name, MethodType type) {
+        try {
+            MethodHandle h = lookup(cls).findVirtual(cls, name, type);
+            return h.asType(h.type().erase());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
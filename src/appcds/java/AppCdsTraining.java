@@ -0,0 +1,118 @@
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * 生成 AppCDS 归档时的训练负载（mvn -P appcds package 调用，见 pom.xml），不打进 jar
+ * - 在本进程内启动一个只实现 Server List Ping 的假服务器，按 -c 的常见用法各查询一次
+ * - JVM 记录加载过的类，再按列表生成归档：ping 成功路径（状态 JSON、MOTD、图标、输出）都在其中
+ * - 输出丢弃，不访问网络，也不连接正在运行的守护进程
+ */
+final class AppCdsTraining {
+
+    private static final String STATUS_JSON = "{\"version\":{\"name\":\"1.20.4\",\"protocol\":765},"
+            + "\"players\":{\"max\":20,\"online\":1},"
+            + "\"description\":{\"text\":\"A Minecraft \",\"color\":\"gold\",\"extra\":[{\"text\":\"Server\",\"bold\":true}]},"
+            + "\"favicon\":\"data:image/png;base64,iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNk+M9QDwADhgGAWjR9awAAAABJRU5ErkJggg==\"}";
+
+    private AppCdsTraining() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        try (ServerSocket server = new ServerSocket(0, 16, InetAddress.getLoopbackAddress())) {
+            Thread.ofPlatform().daemon().start(() -> acceptLoop(server));
+            String address = "127.0.0.1:" + server.getLocalPort();
+            // 不存在的套接字：即使本机有守护进程在运行，也在本进程执行
+            String socket = Path.of(System.getProperty("java.io.tmpdir"),
+                    "mcserverinfo-appcds-" + ProcessHandle.current().pid() + ".sock").toString();
+            byte[] batch = (address + "\n" + address + "\n").getBytes(StandardCharsets.UTF_8);
+            PrintStream sink = new PrintStream(OutputStream.nullOutputStream(), false, StandardCharsets.UTF_8);
+
+            String[][] commands = {
+                    {"-c", address, "--socket", socket},
+                    {"-c", "api", address, "--socket", socket},
+                    {"-c", "api", "-", "--format", "ndjson", "--socket", socket},
+            };
+            for (String[] command : commands) {
+                if (DaemonClient.forward(command)) continue;
+                Main.runCli(command, 1, new ByteArrayInputStream(batch), sink, sink, null);
+            }
+            Main.printUsage(sink);
+        }
+    }
+
+    private static void acceptLoop(ServerSocket server) {
+        while (!server.isClosed()) {
+            try {
+                Socket client = server.accept();
+                Thread.ofPlatform().daemon().start(() -> respond(client));
+            } catch (IOException e) {
+                return; // 已关闭
+            }
+        }
+    }
+
+    /** 握手 → 状态请求 → 状态 JSON → ping/pong */
+    private static void respond(Socket client) {
+        try (client) {
+            DataInputStream in = new DataInputStream(client.getInputStream());
+            OutputStream out = client.getOutputStream();
+            readPacket(in); // 握手
+            readPacket(in); // 状态请求
+            byte[] json = STATUS_JSON.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, 1 + varIntSize(json.length) + json.length);
+            out.write(0x00);
+            writeVarInt(out, json.length);
+            out.write(json);
+            out.flush();
+            byte[] ping = readPacket(in); // 原样返回 payload 作为 pong
+            writeVarInt(out, ping.length);
+            out.write(ping);
+            out.flush();
+        } catch (IOException ignored) {
+            // 客户端提前断开
+        }
+    }
+
+    private static byte[] readPacket(DataInputStream in) throws IOException {
+        byte[] data = new byte[readVarInt(in)];
+        in.readFully(data);
+        return data;
+    }
+
+    private static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new IOException("EOF");
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("VarInt too big");
+    }
+
+    private static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * 地址识别（不使用正则，不分配对象）
+ * - IPv4：a.b.c.d，每段 0-255
+ * - IPv6：完整形式、:: 压缩形式、末尾内嵌 IPv4（::ffff:1.2.3.4），可带 %zone
+ * - 其他一律视为主机名
+ */
+final class Addresses {
+
+    private Addresses() {}
+
+    enum Kind { IPV4, IPV6, HOSTNAME }
+
+    /** 判断主机部分的类型（不含方括号和端口） */
+    static Kind classify(String host) {
+        int len = host.length();
+        if (len == 0) return Kind.HOSTNAME;
+        // 只有 IPv6 含冒号，只有 IPv4 以数字开头且不含字母；各自只扫描一遍
+        if (host.indexOf(':') >= 0) {
+            return isIPv6(host, 0, len) ? Kind.IPV6 : Kind.HOSTNAME;
+        }
+        char first = host.charAt(0);
+        if (first >= '0' && first <= '9' && isIPv4(host, 0, len)) {
+            return Kind.IPV4;
+        }
+        return Kind.HOSTNAME;
+    }
+
+    static boolean isIpLiteral(String host) {
+        return classify(host) != Kind.HOSTNAME;
+    }
+
+    /** s[from, to) 是否为点分十进制 IPv4 */
+    static boolean isIPv4(String s, int from, int to) {
+        int parts = 0;
+        int i = from;
+        while (true) {
+            int value = 0;
+            int digits = 0;
+            while (i < to) {
+                char c = s.charAt(i);
+                if (c < '0' || c > '9') break;
+                value = value * 10 + (c - '0');
+                if (++digits > 3) return false;
+                i++;
+            }
+            if (digits == 0 || value > 255) return false;
+            parts++;
+            if (i == to) return parts == 4;
+            if (s.charAt(i) != '.' || parts == 4) return false;
+            i++;
+        }
+    }
+
+    /** s[from, to) 是否为 IPv6（可含 :: 压缩、末尾 IPv4、%zone） */
+    static boolean isIPv6(String s, int from, int to) {
+        // %zone（如 fe80::1%eth0）只检查非空
+        int zone = s.indexOf('%', from);
+        if (zone >= 0 && zone < to) {
+            if (zone + 1 == to) return false;
+            to = zone;
+        }
+        if (to - from < 2) return false;
+
+        int groups = 0;
+        boolean compressed = false;
+        int i = from;
+        if (s.charAt(i) == ':') {
+            if (s.charAt(i + 1) != ':') return false; // 单个冒号开头
+            compressed = true;
+            i += 2;
+        }
+        while (i < to) {
+            int start = i;
+            while (i < to && isHexDigit(s.charAt(i))) i++;
+
+            if (i < to && s.charAt(i) == '.') {
+                // 末尾内嵌的 IPv4 占两组
+                if (!isIPv4(s, start, to)) return false;
+                groups += 2;
+                break;
+            }
+            int len = i - start;
+            if (len == 0 || len > 4) return false;
+            groups++;
+            if (i == to) break;
+
+            if (s.charAt(i) != ':') return false;
+            i++;
+            if (i < to && s.charAt(i) == ':') {
+                if (compressed) return false; // :: 只能出现一次
+                compressed = true;
+                i++;
+            } else if (i == to) {
+                return false; // 单个冒号结尾
+            }
+        }
+        return compressed ? groups <= 7 : groups == 8;
+    }
+
+    /** ASCII 十六进制数字（Character.digit 还接受全角、阿拉伯-印度等其他 Unicode 数字） */
+    static boolean isHexDigit(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    /** ASCII 十六进制数字的值，其他字符返回 -1 */
+    static int hexValue(char c) {
+        return isHexDigit(c) ? Character.digit(c, 16) : -1;
+    }
+
+    /**
+     * 解析端口号 s[from, to)
+     * @return 端口值；不是纯数字（含空串）返回 -1；数值超过 65535 时返回 65536
+     */
+    static int parsePort(String s, int from, int to) {
+        if (from >= to) return -1;
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            if (value <= 65535) {
+                value = value * 10 + (c - '0');
+            }
+        }
+        return Math.min(value, 65536);
+    }
+}
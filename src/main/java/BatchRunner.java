@@ -0,0 +1,193 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 批量查询：对一组地址并发执行 parseHostPort + 查询
+ * 并发数由 parallelism 限制，结果通过 Listener 按完成顺序回调
+ */
+public class BatchRunner {
+
+    /** 单次批量查询的地址数量上限 */
+    static final int MAX_ADDRESSES = 10000;
+
+    /** 单个地址的查询（如 PingService::query） */
+    public interface Query {
+        ServerResult query(Main.HostPort hp, Deadline deadline);
+    }
+
+    public interface Listener {
+        /**
+         * 某个地址查询完成（可能在多个线程中并发回调）
+         * @param index 地址在输入中的下标
+         */
+        void onResult(int index, String address, ServerResult result);
+    }
+
+    /**
+     * 并发查询所有地址，全部完成后返回
+     * 并发数取 config.parallelism，每个地址使用独立的超时预算（config.newDeadline()）
+     */
+    public static void run(List<String> addresses, Config config, Query query, Listener listener) {
+        Semaphore permits = new Semaphore(config.parallelism);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < addresses.size(); i++) {
+                int index = i;
+                String address = addresses.get(i);
+                permits.acquireUninterruptibly();
+                executor.submit(() -> {
+                    try {
+                        listener.onResult(index, address, queryOne(address, config.newDeadline(), query));
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        } // close() 等待所有任务完成
+    }
+
+    /** 并发查询所有地址，按输入顺序返回结果 */
+    public static ServerResult[] runAll(List<String> addresses, Config config, Query query) {
+        ServerResult[] results = new ServerResult[addresses.size()];
+        run(addresses, config, query, (index, address, result) -> results[index] = result);
+        return results;
+    }
+
+    private static ServerResult queryOne(String address, Deadline deadline, Query query) {
+        Main.HostPort hp;
+        try {
+            hp = Main.parseHostPort(address, deadline);
+        } catch (IllegalArgumentException e) {
+            return errorResult(address, Main.i18n().getString("app.error.addressAnalyzeFailed") + e.getMessage());
+        }
+        try {
+            return query.query(hp, deadline);
+        } catch (DeadlineExceededException | RateLimitedException e) {
+            return errorResult(address, e.getMessage());
+        } catch (Exception e) {
+            return errorResult(address, "Connection failed: " + e.getMessage());
+        }
+    }
+
+    private static ServerResult errorResult(String address, String message) {
+        return ServerResult.failure(address, message);
+    }
+
+    /**
+     * 写出带原始地址字段的结果，便于调用方对应输入
+     * {"host":...} → {"address":"xxx","host":...}
+     */
+    static JsonWriter writeWithAddress(JsonWriter w, String address, ServerResult result) {
+        return w.beginObject()
+                .name("address").value(address)
+                .rawFields(result.jsonBytes())
+                .endObject();
+    }
+
+    /** 把结果写成 JSON 数组（按输入顺序） */
+    static JsonWriter writeJsonArray(JsonWriter w, List<String> addresses, ServerResult[] results) {
+        w.beginArray();
+        for (int i = 0; i < results.length; i++) {
+            writeWithAddress(w, addresses.get(i), results[i]);
+        }
+        return w.endArray();
+    }
+
+    /**
+     * 读取地址列表：每行一个地址，忽略空行和 # 开头的注释
+     */
+    static List<String> readLines(BufferedReader reader) throws IOException {
+        List<String> addresses = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            addresses.add(line);
+        }
+        return addresses;
+    }
+
+    /**
+     * 解析请求体：支持 JSON 字符串数组 ["a","b:25566"]，或每行一个地址的纯文本
+     * @throws IllegalArgumentException 格式错误
+     */
+    static List<String> parseBody(String body) throws IllegalArgumentException {
+        String trimmed = body.trim();
+        if (!trimmed.startsWith("[")) {
+            try {
+                return readLines(new BufferedReader(new StringReader(trimmed)));
+            } catch (IOException e) {
+                throw new IllegalArgumentException(e.getMessage());
+            }
+        }
+
+        List<String> addresses = new ArrayList<>();
+        int i = 1;
+        int n = trimmed.length();
+        while (true) {
+            i = skipWhitespace(trimmed, i);
+            if (i >= n) throw new IllegalArgumentException("Unterminated array");
+            char c = trimmed.charAt(i);
+            if (c == ']' && addresses.isEmpty()) {
+                i++;
+                break;
+            }
+            if (c != '"') throw new IllegalArgumentException("Expected string at " + i);
+
+            // 读取一个 JSON 字符串
+            StringBuilder sb = new StringBuilder();
+            i++;
+            while (true) {
+                if (i >= n) throw new IllegalArgumentException("Unterminated string");
+                c = trimmed.charAt(i++);
+                if (c == '"') break;
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (i >= n) throw new IllegalArgumentException("Unterminated string");
+                char e = trimmed.charAt(i++);
+                switch (e) {
+                    case '"': case '\\': case '/': sb.append(e); break;
+                    case 'n': sb.append('\n'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (i + 4 > n) throw new IllegalArgumentException("Bad unicode escape");
+                        try {
+                            sb.append((char) Integer.parseInt(trimmed.substring(i, i + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw new IllegalArgumentException("Bad unicode escape");
+                        }
+                        i += 4;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Bad escape \\" + e);
+                }
+            }
+            addresses.add(sb.toString().trim());
+
+            i = skipWhitespace(trimmed, i);
+            if (i >= n) throw new IllegalArgumentException("Unterminated array");
+            c = trimmed.charAt(i++);
+            if (c == ']') break;
+            if (c != ',') throw new IllegalArgumentException("Expected , or ] at " + (i - 1));
+        }
+        if (skipWhitespace(trimmed, i) != n) {
+            throw new IllegalArgumentException("Trailing data after array");
+        }
+        return addresses;
+    }
+
+    private static int skipWhitespace(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+        return i;
+    }
+}
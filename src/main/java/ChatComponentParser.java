@@ -0,0 +1,492 @@
+import java.util.Arrays;
+
+/**
+ * Minecraft JSON 文本组件的流式解析器：直接在原始字符串上按下标扫描，不建立 JSON 树
+ * - 支持 text / translate + with / extra / color / bold / italic / underlined / strikethrough / obfuscated，
+ *   其余字段校验后跳过
+ * - 样式继承与游戏一致：extra 和 with 中的组件继承所在组件，数组中后续元素继承第一个元素
+ * - 同时完整校验 JSON 语法，任何错误都返回 false，由调用方按普通字符串处理
+ */
+final class ChatComponentParser {
+
+    /** 嵌套深度上限，防止恶意输入耗尽栈 */
+    private static final int MAX_DEPTH = 64;
+    /** 输出字符数上限：translate 的参数可以被多次引用，限制展开后的总量 */
+    static final int MAX_OUTPUT = 64 * 1024;
+
+    private static final String[] KEYS = {
+            "text", "translate", "with", "extra", "color",
+            "bold", "italic", "underlined", "strikethrough", "obfuscated"
+    };
+    private static final int KEY_TEXT = 0;
+    private static final int KEY_TRANSLATE = 1;
+    private static final int KEY_WITH = 2;
+    private static final int KEY_EXTRA = 3;
+    private static final int KEY_COLOR = 4;
+    /** KEYS 中格式字段的起始下标，顺序与 Motd.FORMAT_FIELDS 一致 */
+    private static final int KEY_FORMAT = 5;
+
+    /** 语法错误，不需要堆栈 */
+    private static final class Malformed extends RuntimeException {
+        Malformed() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final Malformed MALFORMED = new Malformed();
+    private static final String[] LITERALS = {"true", "false", "null"};
+
+    private final String s;
+    private final int n;
+    /** 当前输出目标，渲染 translate 参数时临时切换 */
+    private Motd.Builder out;
+    private int pos;
+
+    private ChatComponentParser(String s, Motd.Builder out) {
+        this.s = s;
+        this.n = s.length();
+        this.out = out;
+    }
+
+    /**
+     * 解析 JSON 文本组件，文本段写入 out
+     * @return JSON 语法合法时返回 true；返回 false 时 out 中可能有部分内容，调用方应丢弃
+     */
+    static boolean parse(String json, Motd.Builder out) {
+        ChatComponentParser p = new ChatComponentParser(json, out);
+        try {
+            p.skipWs();
+            p.component(-1, 0, 0);
+            p.skipWs();
+            return p.pos == p.n;
+        } catch (Malformed e) {
+            return false;
+        }
+    }
+
+    // === 组件 ===
+
+    /**
+     * 解析 pos 处的一个组件
+     * @return 组件的样式（颜色 << 8 | 标志），数组中的后续元素继承它
+     */
+    private long component(int color, int flags, int depth) {
+        if (depth > MAX_DEPTH) throw MALFORMED;
+        switch (peek()) {
+            case '{':
+                return object(color, flags, depth);
+            case '[':
+                return array(color, flags, depth);
+            case '"':
+                emit(string(), color, flags);
+                return style(color, flags);
+            default:
+                // 数字和布尔值按文本显示，null 为空
+                int start = pos;
+                skipLiteral();
+                if (!s.startsWith("null", start)) {
+                    emit(s.substring(start, pos), color, flags);
+                }
+                return style(color, flags);
+        }
+    }
+
+    private long array(int color, int flags, int depth) {
+        pos++; // [
+        skipWs();
+        if (peek() == ']') {
+            pos++;
+            return style(color, flags);
+        }
+        long first = component(color, flags, depth + 1);
+        while (true) {
+            skipWs();
+            char c = peek();
+            pos++;
+            if (c == ']') return first;
+            if (c != ',') throw MALFORMED;
+            skipWs();
+            component(colorOf(first), flagsOf(first), depth + 1);
+        }
+    }
+
+    /**
+     * 对象：先扫描一遍字段，确定样式并记下 text / translate / with / extra 的位置（字段顺序任意），
+     * 再按 文本 → extra 的顺序输出
+     */
+    private long object(int color, int flags, int depth) {
+        pos++; // {
+        int textAt = -1;
+        int translateAt = -1;
+        int withAt = -1;
+        int extraAt = -1;
+
+        skipWs();
+        if (peek() == '}') {
+            pos++;
+            return style(color, flags);
+        }
+        while (true) {
+            int key = key();
+            skipWs();
+            expect(':');
+            skipWs();
+            boolean consumed = false;
+            switch (key) {
+                case KEY_TEXT -> textAt = pos;
+                case KEY_TRANSLATE -> translateAt = pos;
+                case KEY_WITH -> withAt = pos;
+                case KEY_EXTRA -> extraAt = pos;
+                case KEY_COLOR -> {
+                    if (peek() == '"') {
+                        int parsed = Motd.parseColor(string());
+                        if (parsed != -1) color = parsed;
+                        consumed = true;
+                    }
+                }
+                default -> {
+                    if (key >= KEY_FORMAT) {
+                        int bit = 1 << (key - KEY_FORMAT);
+                        if (s.startsWith("true", pos)) {
+                            flags |= bit;
+                        } else if (s.startsWith("false", pos)) {
+                            flags &= ~bit;
+                        }
+                    }
+                }
+            }
+            if (!consumed) {
+                skipValue(depth + 1); // 位置已记下，这里只校验
+            }
+            skipWs();
+            char c = peek();
+            pos++;
+            if (c == '}') break;
+            if (c != ',') throw MALFORMED;
+            skipWs();
+        }
+        int end = pos;
+
+        if (textAt >= 0) {
+            pos = textAt;
+            component(color, flags, depth + 1);
+        } else if (translateAt >= 0) {
+            pos = translateAt;
+            if (peek() == '"') {
+                translate(string(), withAt, color, flags, depth);
+            }
+        }
+        if (extraAt >= 0) {
+            pos = extraAt;
+            if (peek() == '[') {
+                // extra 中每个元素都继承本组件的样式
+                pos++;
+                skipWs();
+                if (peek() == ']') {
+                    pos++;
+                } else {
+                    while (true) {
+                        component(color, flags, depth + 1);
+                        skipWs();
+                        char c = peek();
+                        pos++;
+                        if (c == ']') break;
+                        if (c != ',') throw MALFORMED;
+                        skipWs();
+                    }
+                }
+            } else {
+                component(color, flags, depth + 1);
+            }
+        }
+        pos = end;
+        return style(color, flags);
+    }
+
+    /**
+     * 翻译键无法翻译，原样输出，其中的 %s / %1$s 替换为 with 中对应的组件，%% 为 %
+     * 每个参数只在第一次引用时渲染一次，之后复制结果：嵌套的 translate 不会随引用次数成倍重复解析
+     */
+    private void translate(String format, int withAt, int color, int flags, int depth) {
+        // 收集参数位置
+        int[] args = new int[0];
+        if (withAt >= 0) {
+            pos = withAt;
+            if (peek() == '[') {
+                args = new int[4];
+                int count = 0;
+                pos++;
+                skipWs();
+                if (peek() != ']') {
+                    while (true) {
+                        if (count == args.length) args = Arrays.copyOf(args, count * 2);
+                        args[count++] = pos;
+                        skipValue(depth + 1);
+                        skipWs();
+                        char c = peek();
+                        pos++;
+                        if (c == ']') break;
+                        if (c != ',') throw MALFORMED;
+                        skipWs();
+                    }
+                }
+                args = Arrays.copyOf(args, count);
+            }
+        }
+
+        Motd.Builder[] rendered = new Motd.Builder[args.length];
+        int next = 0;
+        int literalStart = 0;
+        int len = format.length();
+        for (int i = 0; i < len; i++) {
+            if (format.charAt(i) != '%' || i + 1 >= len) continue;
+            int specEnd;
+            int argIndex;
+            char c = format.charAt(i + 1);
+            if (c == '%') {
+                emit(format.substring(literalStart, i + 1), color, flags);
+                literalStart = i + 2;
+                i++;
+                continue;
+            } else if (c == 's') {
+                argIndex = next++;
+                specEnd = i + 2;
+            } else {
+                // %N$s
+                int j = i + 1;
+                int number = 0;
+                while (j < len && Character.isDigit(format.charAt(j))) {
+                    number = number * 10 + (format.charAt(j) - '0');
+                    j++;
+                }
+                if (j == i + 1 || j + 1 >= len || format.charAt(j) != '$' || format.charAt(j + 1) != 's') continue;
+                argIndex = number - 1;
+                specEnd = j + 2;
+            }
+            if (argIndex < 0 || argIndex >= args.length) continue; // 没有对应参数，原样保留
+            emit(format.substring(literalStart, i), color, flags);
+            Motd.Builder arg = rendered[argIndex];
+            if (arg == null) {
+                arg = rendered[argIndex] = new Motd.Builder();
+                Motd.Builder target = out;
+                out = arg;
+                pos = args[argIndex];
+                component(color, flags, depth + 1);
+                out = target;
+            }
+            out.appendAll(arg);
+            checkOutput();
+            literalStart = specEnd;
+            i = specEnd - 1;
+        }
+        emit(format.substring(literalStart), color, flags);
+    }
+
+    private void emit(String text, int color, int flags) {
+        out.append(text, color, flags);
+        checkOutput();
+    }
+
+    private void checkOutput() {
+        if (out.length() > MAX_OUTPUT) throw MALFORMED;
+    }
+
+    private static long style(int color, int flags) {
+        return ((long) color << 8) | flags;
+    }
+
+    private static int colorOf(long style) {
+        return (int) (style >> 8);
+    }
+
+    private static int flagsOf(long style) {
+        return (int) (style & 0xFF);
+    }
+
+    // === JSON 词法 ===
+
+    private char peek() {
+        if (pos >= n) throw MALFORMED;
+        return s.charAt(pos);
+    }
+
+    private void expect(char c) {
+        if (peek() != c) throw MALFORMED;
+        pos++;
+    }
+
+    private void skipWs() {
+        while (pos < n) {
+            char c = s.charAt(pos);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') return;
+            pos++;
+        }
+    }
+
+    /** 读取字段名，返回其在 KEYS 中的下标，未知字段返回 -1；没有转义字符时不分配内存 */
+    private int key() {
+        if (peek() != '"') throw MALFORMED;
+        int start = pos + 1;
+        int end = start;
+        while (end < n && s.charAt(end) != '"' && s.charAt(end) != '\\') end++;
+        if (end < n && s.charAt(end) == '"') {
+            pos = end + 1;
+            int len = end - start;
+            for (int i = 0; i < KEYS.length; i++) {
+                if (KEYS[i].length() == len && s.regionMatches(start, KEYS[i], 0, len)) return i;
+            }
+            return -1;
+        }
+        String name = string();
+        for (int i = 0; i < KEYS.length; i++) {
+            if (KEYS[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    /** 读取字符串（pos 指向开头的引号），没有转义字符时直接截取 */
+    private String string() {
+        pos++; // "
+        int start = pos;
+        while (pos < n) {
+            char c = s.charAt(pos);
+            if (c == '"') {
+                return s.substring(start, pos++);
+            }
+            if (c == '\\') break;
+            if (c < 0x20) throw MALFORMED;
+            pos++;
+        }
+        StringBuilder sb = new StringBuilder(pos - start + 16);
+        sb.append(s, start, pos);
+        while (true) {
+            char c = peek();
+            pos++;
+            if (c == '"') return sb.toString();
+            if (c < 0x20) throw MALFORMED;
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char e = peek();
+            pos++;
+            switch (e) {
+                case '"', '\\', '/' -> sb.append(e);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> sb.append((char) hex4());
+                default -> throw MALFORMED;
+            }
+        }
+    }
+
+    private void skipString() {
+        pos++; // "
+        while (true) {
+            char c = peek();
+            pos++;
+            if (c == '"') return;
+            if (c < 0x20) throw MALFORMED;
+            if (c == '\\') {
+                char e = peek();
+                pos++;
+                if (e == 'u') {
+                    hex4();
+                } else if ("\"\\/bfnrt".indexOf(e) < 0) {
+                    throw MALFORMED;
+                }
+            }
+        }
+    }
+
+    private int hex4() {
+        if (pos + 4 > n) throw MALFORMED;
+        int v = 0;
+        for (int i = 0; i < 4; i++) {
+            int d = Addresses.hexValue(s.charAt(pos++));
+            if (d < 0) throw MALFORMED;
+            v = (v << 4) | d;
+        }
+        return v;
+    }
+
+    /** 跳过并校验任意 JSON 值 */
+    private void skipValue(int depth) {
+        if (depth > MAX_DEPTH) throw MALFORMED;
+        char c = peek();
+        if (c == '"') {
+            skipString();
+        } else if (c == '{') {
+            pos++;
+            skipWs();
+            if (peek() == '}') {
+                pos++;
+                return;
+            }
+            while (true) {
+                if (peek() != '"') throw MALFORMED;
+                skipString();
+                skipWs();
+                expect(':');
+                skipWs();
+                skipValue(depth + 1);
+                skipWs();
+                char d = peek();
+                pos++;
+                if (d == '}') return;
+                if (d != ',') throw MALFORMED;
+                skipWs();
+            }
+        } else if (c == '[') {
+            pos++;
+            skipWs();
+            if (peek() == ']') {
+                pos++;
+                return;
+            }
+            while (true) {
+                skipValue(depth + 1);
+                skipWs();
+                char d = peek();
+                pos++;
+                if (d == ']') return;
+                if (d != ',') throw MALFORMED;
+                skipWs();
+            }
+        } else {
+            skipLiteral();
+        }
+    }
+
+    /** true / false / null 或数字 */
+    private void skipLiteral() {
+        for (String word : LITERALS) {
+            if (s.startsWith(word, pos)) {
+                pos += word.length();
+                return;
+            }
+        }
+        int start = pos;
+        if (pos < n && s.charAt(pos) == '-') pos++;
+        if (digits() == 0) throw MALFORMED;
+        if (pos < n && s.charAt(pos) == '.') {
+            pos++;
+            if (digits() == 0) throw MALFORMED;
+        }
+        if (pos < n && (s.charAt(pos) == 'e' || s.charAt(pos) == 'E')) {
+            pos++;
+            if (pos < n && (s.charAt(pos) == '+' || s.charAt(pos) == '-')) pos++;
+            if (digits() == 0) throw MALFORMED;
+        }
+        if (pos == start) throw MALFORMED;
+    }
+
+    private int digits() {
+        int start = pos;
+        while (pos < n && s.charAt(pos) >= '0' && s.charAt(pos) <= '9') pos++;
+        return pos - start;
+    }
+}
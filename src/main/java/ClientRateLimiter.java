@@ -0,0 +1,102 @@
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按客户端 IP 的令牌桶限流（GCRA 实现）
+ * 每个客户端只保存一个"理论到达时间"，放行判断是一次 CAS，不加锁
+ */
+public class ClientRateLimiter {
+
+    /** 记录的客户端超过该数量时清理空闲条目 */
+    private static final int MAX_CLIENTS = 100_000;
+    private static final byte[] TOO_MANY = "{\"error\":\"Too many requests\"}".getBytes(StandardCharsets.UTF_8);
+
+    /** 每个令牌的间隔（纳秒），0 表示不限流 */
+    private final long intervalNanos;
+    /** 桶容量对应的时间（纳秒） */
+    private final long burstNanos;
+    private final ConcurrentHashMap<String, AtomicLong> clients = new ConcurrentHashMap<>();
+
+    /**
+     * @param perSecond 每秒补充的令牌数，0 表示不限流
+     * @param burst 桶容量（允许的突发请求数）
+     */
+    public ClientRateLimiter(int perSecond, int burst) {
+        this.intervalNanos = perSecond > 0 ? 1_000_000_000L / perSecond : 0;
+        this.burstNanos = intervalNanos * burst;
+    }
+
+    public boolean isEnabled() {
+        return intervalNanos > 0;
+    }
+
+    /**
+     * 尝试取一个令牌
+     * @return 0 表示放行，否则为需要等待的毫秒数
+     */
+    public long tryAcquire(String client) {
+        long now = System.nanoTime();
+        AtomicLong tat = clients.get(client);
+        if (tat == null) {
+            if (clients.size() >= MAX_CLIENTS) {
+                evictIdle(now);
+            }
+            tat = clients.computeIfAbsent(client, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long current = tat.get();
+            long next = (current - now > 0 ? current : now) + intervalNanos;
+            long over = next - now - burstNanos;
+            if (over > 0) {
+                return (over + 999_999) / 1_000_000;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /** 理论到达时间已过去的客户端桶是满的，删除不影响结果 */
+    private void evictIdle(long now) {
+        clients.values().removeIf(tat -> tat.get() - now <= 0);
+    }
+
+    /** 超出速率的请求直接返回 429 */
+    Filter filter() {
+        return new Filter() {
+            @Override
+            public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+                if (!isEnabled()) {
+                    chain.doFilter(exchange);
+                    return;
+                }
+                InetSocketAddress remote = exchange.getRemoteAddress();
+                String client = remote.getAddress() != null ? remote.getAddress().getHostAddress() : remote.getHostString();
+                long waitMillis = tryAcquire(client);
+                if (waitMillis == 0) {
+                    chain.doFilter(exchange);
+                    return;
+                }
+                Metrics.RATE_LIMITED.increment("client");
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(RateLimitedException.toSeconds(waitMillis)));
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(429, TOO_MANY.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(TOO_MANY);
+                }
+            }
+
+            @Override
+            public String description() {
+                return "client rate limit";
+            }
+        };
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * 运行参数（-s / -c 之后的 --xxx 选项）
+ * 所有字段都有默认值，未指定的选项保持默认
+ */
+public class Config {
+    /** 同时进行中的 ping 数量上限 */
+    int maxInFlight = 64;
+    /** 达到上限后排队等待的最长时间（毫秒），0 表示立即拒绝 */
+    long queueTimeoutMillis = 0;
+    /** 拒绝请求时返回的 Retry-After（秒） */
+    int retryAfterSeconds = 1;
+    /** 结果缓存有效期（毫秒），0 表示关闭缓存 */
+    long cacheTtlMillis = 5000;
+    /** 过期后仍可返回旧值并后台刷新的时间窗口（毫秒） */
+    long cacheStaleMillis = 30000;
+    /** 结果缓存最多保存的服务器数量 */
+    int cacheSize = 1024;
+    /** 批量查询时同时进行的查询数量 */
+    int parallelism = 16;
+    /** CLI 批量 JSON 输出格式：false 为 JSON 数组，true 为 NDJSON（逐条输出） */
+    boolean ndjson = false;
+    /** ping 实现：nio（默认）或 legacy（MinecraftPinger） */
+    String engine = "nio";
+    /** 连接超时（毫秒） */
+    long connectTimeoutMillis = Deadline.DEFAULT_CONNECT_MILLIS;
+    /** 连接后读取状态响应的超时（毫秒） */
+    long readTimeoutMillis = Deadline.DEFAULT_READ_MILLIS;
+    /** 单次查询（SRV + 排队 + ping）的总超时（毫秒） */
+    long timeoutMillis = Deadline.DEFAULT_TOTAL_MILLIS;
+    /** 关注列表文件（server 模式），null 表示不加载 */
+    String watchFile = null;
+    /** 关注列表的默认刷新间隔（毫秒） */
+    long watchIntervalMillis = 30000;
+    /** 每个客户端 IP 每秒允许的请求数，0 表示不限流 */
+    int rateLimit = 0;
+    /** 客户端限流允许的突发请求数 */
+    int rateBurst = 20;
+    /** 同一目标主机同时进行的 ping 上限 */
+    int targetConcurrency = 4;
+    /** 同一目标主机两次 ping 的最小间隔（毫秒），0 表示不限制 */
+    long targetIntervalMillis = 100;
+    /** ping 历史记录目录（server 模式），null 表示不记录 */
+    String historyDir = null;
+    /** 历史记录保留天数 */
+    int historyRetentionDays = 30;
+    /** HTTP 空闲连接保持时间（秒） */
+    int keepAliveSeconds = 60;
+    /** 服务器图标在内存中最多占用的大小（MB） */
+    int faviconCacheMb = 16;
+    /** 图标溢出目录（server 模式），null 表示只保存在内存中 */
+    String faviconDir = null;
+    /** 守护进程的 Unix 域套接字路径（-d 监听，-c 连接） */
+    String socketPath = DaemonClient.defaultSocketPath();
+
+    /**
+     * 从 args[from] 开始解析 --xxx 选项
+     * @throws IllegalArgumentException 未知选项或数值非法
+     */
+    static Config parse(String[] args, int from) throws IllegalArgumentException {
+        Config config = new Config();
+        for (int i = from; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException(Main.i18n().getString("app.error.optionNeedsValue") + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--max-inflight":
+                    config.maxInFlight = parsePositive(option, value);
+                    break;
+                case "--queue-timeout":
+                    config.queueTimeoutMillis = parseNonNegative(option, value);
+                    break;
+                case "--retry-after":
+                    config.retryAfterSeconds = parsePositive(option, value);
+                    break;
+                case "--cache-ttl":
+                    config.cacheTtlMillis = parseNonNegative(option, value);
+                    break;
+                case "--cache-stale":
+                    config.cacheStaleMillis = parseNonNegative(option, value);
+                    break;
+                case "--cache-size":
+                    config.cacheSize = parsePositive(option, value);
+                    break;
+                case "--parallel":
+                    config.parallelism = parsePositive(option, value);
+                    break;
+                case "--format":
+                    if (!"json".equals(value) && !"ndjson".equals(value)) {
+                        throw new IllegalArgumentException(Main.i18n().getString("app.error.optionInvalid") + option + " " + value);
+                    }
+                    config.ndjson = "ndjson".equals(value);
+                    break;
+                case "--engine":
+                    if (!"nio".equals(value) && !"legacy".equals(value)) {
+                        throw new IllegalArgumentException(Main.i18n().getString("app.error.optionInvalid") + option + " " + value);
+                    }
+                    config.engine = value;
+                    break;
+                case "--connect-timeout":
+                    config.connectTimeoutMillis = parsePositive(option, value);
+                    break;
+                case "--read-timeout":
+                    config.readTimeoutMillis = parsePositive(option, value);
+                    break;
+                case "--timeout":
+                    config.timeoutMillis = parsePositive(option, value);
+                    break;
+                case "--watch-file":
+                    config.watchFile = value;
+                    break;
+                case "--watch-interval":
+                    config.watchIntervalMillis = parsePositive(option, value);
+                    if (config.watchIntervalMillis < WatchRegistry.MIN_INTERVAL_MILLIS) {
+                        throw new IllegalArgumentException(Main.i18n().getString("app.error.optionInvalid") + option + " " + value);
+                    }
+                    break;
+                case "--rate-limit":
+                    config.rateLimit = (int) Math.min(parseNonNegative(option, value), Integer.MAX_VALUE);
+                    break;
+                case "--rate-burst":
+                    config.rateBurst = parsePositive(option, value);
+                    break;
+                case "--target-concurrency":
+                    config.targetConcurrency = parsePositive(option, value);
+                    break;
+                case "--target-interval":
+                    config.targetIntervalMillis = parseNonNegative(option, value);
+                    break;
+                case "--history-dir":
+                    config.historyDir = value;
+                    break;
+                case "--history-retention":
+                    config.historyRetentionDays = parsePositive(option, value);
+                    break;
+                case "--keep-alive":
+                    config.keepAliveSeconds = parsePositive(option, value);
+                    break;
+                case "--favicon-cache":
+                    config.faviconCacheMb = parsePositive(option, value);
+                    break;
+                case "--favicon-dir":
+                    config.faviconDir = value;
+                    break;
+                case "--socket":
+                    config.socketPath = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException(Main.i18n().getString("app.unknownParameter") + option);
+            }
+        }
+        return config;
+    }
+
+    /** 按当前配置创建一个从现在开始计时的超时预算 */
+    Deadline newDeadline() {
+        return Deadline.of(connectTimeoutMillis, readTimeoutMillis, timeoutMillis);
+    }
+
+    static int parsePositive(String option, String value) {
+        long n = parseNonNegative(option, value);
+        if (n < 1 || n > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(Main.i18n().getString("app.error.optionInvalid") + option + " " + value);
+        }
+        return (int) n;
+    }
+
+    static long parseNonNegative(String option, String value) {
+        try {
+            long n = Long.parseLong(value);
+            if (n < 0) {
+                throw new NumberFormatException();
+            }
+            return n;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(Main.i18n().getString("app.error.optionInvalid") + option + " " + value);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 守护进程模式：在 Unix 域套接字上接收 DaemonClient 转发的 -c 命令，在常驻的 JVM 中执行
+ * - 所有命令共用一个 PingService：结果缓存、SRV 缓存和 JIT 预热对之后的每次调用都有效
+ * - 每个连接一个虚拟线程；--engine 和缓存相关选项以启动守护进程时为准，超时、并发和输出格式按每条命令
+ * - 套接字放在只有当前用户可以访问的目录中（见 DaemonClient.defaultSocketPath），只接受同一用户的连接，退出时删除
+ */
+final class Daemon {
+
+    private static final int MAX_ARGS = 256;
+    /** 批量输入（标准输入或地址文件）的上限 */
+    private static final int MAX_INPUT_BYTES = 16 * 1024 * 1024;
+
+    private Daemon() {
+    }
+
+    /** 启动并一直运行（阻塞当前线程） */
+    static void run(Config config) throws IOException {
+        Path socket = Path.of(config.socketPath);
+        try {
+            DaemonClient.prepareDirectory(socket);
+        } catch (IOException e) {
+            System.err.println(Main.i18n().getString("app.error.socketDir") + e.getMessage());
+            return;
+        }
+        if (Files.exists(socket)) {
+            // 能连上说明已有守护进程在运行，否则是上次异常退出残留的文件
+            try (SocketChannel probe = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+                probe.connect(UnixDomainSocketAddress.of(socket));
+                System.err.println(Main.i18n().getString("app.error.daemonRunning") + socket);
+                return;
+            } catch (IOException e) {
+                Files.deleteIfExists(socket);
+            }
+        }
+
+        PingService pings = new PingService(config);
+        // 与 GUI 相同：排队超时、限流等异常转换为超时 / 离线结果
+        BatchRunner.Query query = (hp, deadline) -> {
+            try {
+                return pings.query(hp, deadline);
+            } catch (DeadlineExceededException e) {
+                return new ServerResult(hp.host, hp.port, PingStatus.timeout(e.getMessage()));
+            } catch (RejectedExecutionException | RateLimitedException e) {
+                return new ServerResult(hp.host, hp.port, PingStatus.offline(e.getMessage()));
+            }
+        };
+
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            try {
+                // 目录已经只有当前用户可以访问，这里再收紧文件本身
+                Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException ignored) {
+                // 非 POSIX 文件系统，依赖目录本身的权限
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(socket);
+                } catch (IOException ignored) {}
+            }));
+            System.out.println(Main.i18n().getString("app.daemon.listening") + socket);
+            System.out.println(Main.i18n().getString("app.quitServer"));
+
+            while (true) {
+                SocketChannel client = server.accept();
+                Thread.startVirtualThread(() -> serve(client, query));
+            }
+        }
+    }
+
+    /** 处理一条命令：读取参数和输入，执行，输出按帧写回，最后写结束帧 */
+    private static void serve(SocketChannel channel, BatchRunner.Query query) {
+        try (channel) {
+            if (!DaemonClient.isPeerUser(channel)) return; // --socket 指向共享目录时，拒绝其他用户
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            if (in.readInt() != DaemonClient.PROTOCOL_VERSION) return;
+            int argc = in.readInt();
+            if (argc < 1 || argc > MAX_ARGS) return;
+            String[] args = new String[argc];
+            for (int i = 0; i < argc; i++) {
+                args[i] = in.readUTF();
+            }
+            int length = in.readInt();
+            if (length > MAX_INPUT_BYTES) return;
+            byte[] input = length < 0 ? new byte[0] : in.readNBytes(length);
+
+            DataOutputStream frames = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            CountDownLatch done = new CountDownLatch(1);
+            Thread.startVirtualThread(() -> keepAlive(frames, done));
+            try (PrintStream out = frameStream(frames, DaemonClient.FRAME_OUT);
+                 PrintStream err = frameStream(frames, DaemonClient.FRAME_ERR)) {
+                if ("-c".equals(args[0]) || "--cli".equals(args[0])) {
+                    Main.runCli(args, 1, new ByteArrayInputStream(input), out, err, query);
+                } else {
+                    err.println(Main.i18n().getString("app.unknownParameter") + args[0]);
+                }
+            } finally {
+                done.countDown();
+            }
+            synchronized (frames) {
+                frames.writeByte(DaemonClient.FRAME_END);
+                frames.flush();
+            }
+        } catch (IOException e) {
+            // 客户端提前断开
+        }
+    }
+
+    /**
+     * 命令执行期间定期发送空帧，客户端据此区分“仍在执行”和“守护进程卡住”
+     * 不使用 interrupt 结束：中断阻塞在通道上的线程会关闭连接
+     */
+    private static void keepAlive(DataOutputStream frames, CountDownLatch done) {
+        try {
+            while (!done.await(DaemonClient.KEEPALIVE_MILLIS, TimeUnit.MILLISECONDS)) {
+                synchronized (frames) {
+                    if (done.getCount() == 0) return;
+                    frames.writeByte(DaemonClient.FRAME_KEEPALIVE);
+                    frames.writeInt(0);
+                    frames.flush();
+                }
+            }
+        } catch (InterruptedException | IOException ignored) {
+            // 客户端已断开
+        }
+    }
+
+    /** 写入的内容作为一帧发出（缓冲后每次 flush 一帧），关闭时不关闭底层连接 */
+    private static PrintStream frameStream(DataOutputStream frames, byte type) {
+        OutputStream stream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (len == 0) return;
+                synchronized (frames) {
+                    frames.writeByte(type);
+                    frames.writeInt(len);
+                    frames.write(b, off, len);
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                synchronized (frames) {
+                    frames.flush();
+                }
+            }
+        };
+        return new PrintStream(new BufferedOutputStream(stream, 8192), false, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,250 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import jdk.net.ExtendedSocketOptions;
+import jdk.net.UnixDomainPrincipal;
+
+/**
+ * 守护进程的瘦客户端：-c 命令有守护进程在运行时，把参数和输入转发给它，原样输出结果
+ * 只使用 JDK 类，转发路径上不加载 ping、GUI、dnsjava 等，省去每次启动的类加载和预热
+ *
+ * 协议（Unix 域套接字，DataOutputStream 大端）：
+ * - 请求：int 版本，int 参数个数，每个参数 writeUTF，int 输入长度（-1 表示没有），输入字节
+ *   （"-" 的标准输入和 "@文件" 的内容由客户端读取后作为输入发送，地址改为 "-"）
+ * - 响应：若干帧，byte 类型 + int 长度 + 字节；类型 OUT / ERR 分别写到标准输出 / 标准错误，
+ *   KEEPALIVE 为空帧（命令执行期间定期发送），END 结束
+ *
+ * 安全：套接字所在目录必须属于当前用户且其他用户不可写，套接字文件和对端进程（SO_PEERCRED）也必须属于当前用户，
+ * 否则不转发，在本进程执行
+ */
+final class DaemonClient {
+
+    static final int PROTOCOL_VERSION = 2;
+    static final byte FRAME_END = 0;
+    static final byte FRAME_OUT = 1;
+    static final byte FRAME_ERR = 2;
+    static final byte FRAME_KEEPALIVE = 3;
+
+    /** 守护进程发送 KEEPALIVE 的间隔 */
+    static final long KEEPALIVE_MILLIS = 2000;
+    /** 超过该时间收不到任何帧，认为守护进程已卡住 */
+    private static final long STALL_MILLIS = 5 * KEEPALIVE_MILLIS;
+
+    /** 已经输出了内容或读取了标准输入，此后失败不能再回退到本地执行 */
+    private boolean committed;
+    /** 最近一次收到数据的时间（System.nanoTime），由看门狗线程检查 */
+    private volatile long lastReadAt;
+    private volatile boolean stalled;
+
+    private DaemonClient() {
+    }
+
+    static String user() {
+        return System.getProperty("user.name");
+    }
+
+    /**
+     * 默认套接字路径：$XDG_RUNTIME_DIR（只有当前用户可以访问）下的 mcserverinfo.sock；
+     * 没有时为临时目录下按用户区分的私有目录 mcserverinfo-<用户名>/（由守护进程以 0700 创建）
+     */
+    static String defaultSocketPath() {
+        String runtimeDir = System.getenv("XDG_RUNTIME_DIR");
+        if (runtimeDir != null && !runtimeDir.isEmpty() && Files.isDirectory(Path.of(runtimeDir))) {
+            return Path.of(runtimeDir, "mcserverinfo.sock").toString();
+        }
+        return Path.of(System.getProperty("java.io.tmpdir"), "mcserverinfo-" + user(), "daemon.sock").toString();
+    }
+
+    /**
+     * 守护进程绑定前调用：目录不存在时以 0700 创建（创建时即带权限，没有竞争窗口）
+     * @throws IOException 目录不属于当前用户或其他用户可写
+     */
+    static void prepareDirectory(Path socket) throws IOException {
+        Path dir = socket.toAbsolutePath().getParent();
+        if (!Files.exists(dir, LinkOption.NOFOLLOW_LINKS)) {
+            try {
+                Files.createDirectory(dir, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } catch (UnsupportedOperationException e) {
+                Files.createDirectory(dir);
+            }
+        }
+        if (!isPrivateDirectory(dir)) {
+            throw new IOException(dir.toString());
+        }
+    }
+
+    /** 目录（不跟随符号链接）属于当前用户，且组和其他用户没有写权限 */
+    private static boolean isPrivateDirectory(Path dir) throws IOException {
+        if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) return false;
+        if (!isOwnedByUser(dir)) return false;
+        try {
+            Set<PosixFilePermission> perms = Files.getPosixFilePermissions(dir, LinkOption.NOFOLLOW_LINKS);
+            return !perms.contains(PosixFilePermission.GROUP_WRITE) && !perms.contains(PosixFilePermission.OTHERS_WRITE);
+        } catch (UnsupportedOperationException e) {
+            return true; // 非 POSIX 文件系统，只检查所有者
+        }
+    }
+
+    private static boolean isOwnedByUser(Path path) throws IOException {
+        return Files.getOwner(path, LinkOption.NOFOLLOW_LINKS).getName().equals(user());
+    }
+
+    /** 对端进程属于当前用户（平台不支持 SO_PEERCRED 时依赖目录和文件的检查） */
+    static boolean isPeerUser(SocketChannel channel) throws IOException {
+        if (!channel.supportedOptions().contains(ExtendedSocketOptions.SO_PEERCRED)) return true;
+        UnixDomainPrincipal peer = channel.getOption(ExtendedSocketOptions.SO_PEERCRED);
+        return peer.user().getName().equals(user());
+    }
+
+    /** --socket 选项的值，没有时使用默认路径 */
+    static String socketPath(String[] args) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if ("--socket".equals(args[i])) return args[i + 1];
+        }
+        return defaultSocketPath();
+    }
+
+    /**
+     * 尝试交给守护进程执行 -c 命令
+     * @param args 完整的命令行参数（args[0] 为 -c / --cli）
+     * @return true 表示已由守护进程执行完毕；false 表示没有可用的守护进程（或无法转发），调用方应在本进程执行
+     */
+    static boolean forward(String[] args) {
+        Path socket = Path.of(socketPath(args));
+        DaemonClient client = new DaemonClient();
+        try {
+            // 其他用户放置的套接字可能返回伪造的结果，不转发
+            if (!Files.exists(socket, LinkOption.NOFOLLOW_LINKS)
+                    || !isOwnedByUser(socket) || !isPrivateDirectory(socket.toAbsolutePath().getParent())) {
+                return false;
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            try {
+                channel.connect(UnixDomainSocketAddress.of(socket));
+                if (!isPeerUser(channel)) return false;
+            } catch (IOException e) {
+                return false; // 套接字文件残留，守护进程已退出
+            }
+            return client.run(channel, args);
+        } catch (IOException | UnsupportedOperationException e) {
+            if (!client.committed) return false;
+            System.err.println(client.stalled
+                    ? Main.i18n().getString("app.error.daemonStalled") + STALL_MILLIS
+                    : Main.i18n().getString("app.error.daemonConnection") + e.getMessage());
+            return true;
+        }
+    }
+
+    /** 看门狗：超过 STALL_MILLIS 没有收到任何帧时关闭连接，阻塞的读取随之抛出异常 */
+    private Thread startWatchdog(SocketChannel channel) {
+        lastReadAt = System.nanoTime();
+        return Thread.ofPlatform().daemon().name("daemon-client-watchdog").start(() -> {
+            try {
+                while (true) {
+                    long left = TimeUnit.MILLISECONDS.toNanos(STALL_MILLIS) - (System.nanoTime() - lastReadAt);
+                    if (left <= 0) {
+                        stalled = true;
+                        channel.close();
+                        return;
+                    }
+                    TimeUnit.NANOSECONDS.sleep(left);
+                }
+            } catch (InterruptedException | IOException e) {
+                // 正常结束
+            }
+        });
+    }
+
+    private boolean run(SocketChannel channel, String[] args) throws IOException {
+        // 批量输入在本地读取：守护进程看不到客户端的标准输入和当前目录
+        String[] request = args.clone();
+        byte[] input = null;
+        int addressIndex = args.length > 1 && "api".equalsIgnoreCase(args[1]) ? 2 : 1;
+        if (addressIndex < args.length) {
+            String address = args[addressIndex];
+            if ("-".equals(address)) {
+                committed = true; // 标准输入只能读一次
+                input = System.in.readAllBytes();
+            } else if (address.startsWith("@")) {
+                try {
+                    input = Files.readAllBytes(Path.of(address.substring(1)));
+                } catch (IOException e) {
+                    return false; // 由本地执行输出本地化的错误信息
+                }
+                request[addressIndex] = "-";
+            }
+        }
+
+        // 输入读完后才开始计时（读取标准输入可能很慢）
+        Thread watchdog = startWatchdog(channel);
+        try {
+            send(channel, request, input);
+            return relay(new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel))));
+        } finally {
+            watchdog.interrupt();
+        }
+    }
+
+    private static void send(SocketChannel channel, String[] request, byte[] input) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        out.writeInt(PROTOCOL_VERSION);
+        out.writeInt(request.length);
+        for (String arg : request) {
+            out.writeUTF(arg);
+        }
+        if (input == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(input.length);
+            out.write(input);
+        }
+        out.flush();
+    }
+
+    /** 把响应帧输出到标准输出 / 标准错误，直到结束帧 */
+    private boolean relay(DataInputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (true) {
+            byte type = in.readByte(); // 没有结束帧就断开 → EOFException
+            lastReadAt = System.nanoTime();
+            if (type == FRAME_END) {
+                System.out.flush();
+                return true;
+            }
+            int remaining = in.readInt();
+            if (type == FRAME_KEEPALIVE) {
+                in.skipNBytes(remaining);
+                continue;
+            }
+            PrintStream target = type == FRAME_ERR ? System.err : System.out;
+            committed = true;
+            while (remaining > 0) {
+                int n = in.read(buffer, 0, Math.min(buffer.length, remaining));
+                if (n < 0) throw new EOFException("connection closed");
+                lastReadAt = System.nanoTime();
+                target.write(buffer, 0, n);
+                remaining -= n;
+            }
+            target.flush();
+        }
+    }
+}
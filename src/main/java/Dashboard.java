@@ -0,0 +1,435 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.TableCellRenderer;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 多服务器监控面板：表格中的服务器按固定间隔并发刷新
+ * - 每轮刷新是一次批量查询（BatchRunner + GUI 共用的 PingService），在后台线程中进行
+ * - 查询结果先进入队列，每批只投递一次到事件调度线程，只通知实际变化的单元格重绘
+ * - MOTD 只在内容变化时创建一次显示组件（HTML 由 MotdFormatter 缓存），重绘时不再解析
+ */
+public class Dashboard {
+
+    static ResourceBundle i18n = Main.i18n();
+
+    /** 每个服务器保留的历史点数（迷你走势图的宽度） */
+    static final int HISTORY_POINTS = 60;
+    private static final int DEFAULT_INTERVAL_SECONDS = 10;
+    /** 服务器列中图标的边长（行高 36） */
+    private static final int FAVICON_SIZE = 32;
+
+    static final int COL_SERVER = 0;
+    static final int COL_STATUS = 1;
+    static final int COL_PLAYERS = 2;
+    static final int COL_PING = 3;
+    static final int COL_PLAYERS_HISTORY = 4;
+    static final int COL_PING_HISTORY = 5;
+    static final int COL_MOTD = 6;
+
+    /** 固定长度的环形缓冲区，-1 表示该次查询离线（走势图中断开） */
+    static final class Sparkline {
+        private final int[] values = new int[HISTORY_POINTS];
+        private int start;
+        private int size;
+
+        void add(int value) {
+            if (size < values.length) {
+                values[(start + size++) % values.length] = value;
+            } else {
+                values[start] = value;
+                start = (start + 1) % values.length;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(int i) {
+            return values[(start + i) % values.length];
+        }
+    }
+
+    /** 表格中的一行，只在事件调度线程中修改 */
+    static final class Row {
+        final String address;
+        ServerResult latest;
+        final Sparkline players = new Sparkline();
+        final Sparkline ping = new Sparkline();
+        /** 走势图最后一个点对应结果的生成时间：缓存或旧值重复返回同一个结果时不再加点 */
+        long lastPointAt = Long.MIN_VALUE;
+        /** 在 Model.rows 中的下标，已删除时为 -1 */
+        int index = -1;
+        /** 生成 motdLabel 时的 MOTD 文本 */
+        String motdSource;
+        JLabel motdLabel;
+        /** 当前图标的内容哈希，图标只在哈希变化时解码 */
+        String faviconHash;
+        Icon favicon;
+
+        Row(String address) {
+            this.address = address;
+        }
+    }
+
+    static final class Model extends AbstractTableModel {
+        private final String[] columns = {
+                i18n.getString("dashboard.server"), i18n.getString("dashboard.status"),
+                i18n.getString("dashboard.players"), i18n.getString("dashboard.ping"),
+                i18n.getString("dashboard.playersHistory"), i18n.getString("dashboard.pingHistory"),
+                i18n.getString("dashboard.motd")
+        };
+        final List<Row> rows = new ArrayList<>();
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columns[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return switch (column) {
+                case COL_PLAYERS_HISTORY, COL_PING_HISTORY -> Sparkline.class;
+                case COL_SERVER, COL_MOTD -> Row.class;
+                default -> String.class;
+            };
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int column) {
+            Row row = rows.get(rowIndex);
+            return switch (column) {
+                case COL_STATUS -> status(row.latest);
+                case COL_PLAYERS -> row.latest != null && row.latest.isOnline()
+                        ? row.latest.status.playersOnline + "/" + row.latest.status.maxPlayers : "";
+                case COL_PING -> row.latest != null && row.latest.isOnline() ? row.latest.status.ping + " ms" : "";
+                case COL_PLAYERS_HISTORY -> row.players;
+                case COL_PING_HISTORY -> row.ping;
+                default -> row;
+            };
+        }
+
+        void add(String address) {
+            Row row = new Row(address);
+            row.index = rows.size();
+            rows.add(row);
+            fireTableRowsInserted(row.index, row.index);
+        }
+
+        void remove(int index) {
+            rows.remove(index).index = -1;
+            for (int i = index; i < rows.size(); i++) {
+                rows.get(i).index = i;
+            }
+            fireTableRowsDeleted(index, index);
+        }
+
+        /** 更新一行，只通知值发生变化的单元格 */
+        void update(Row row, ServerResult result) {
+            int index = row.index;
+            if (index < 0) return; // 查询期间已被删除
+
+            Object[] before = {getValueAt(index, COL_STATUS), getValueAt(index, COL_PLAYERS), getValueAt(index, COL_PING)};
+            row.latest = result;
+            for (int i = 0; i < before.length; i++) {
+                if (!Objects.equals(before[i], getValueAt(index, COL_STATUS + i))) {
+                    fireTableCellUpdated(index, COL_STATUS + i);
+                }
+            }
+
+            boolean online = result.isOnline();
+            if (result.createdAt > row.lastPointAt) {
+                row.lastPointAt = result.createdAt;
+                row.players.add(online ? result.status.playersOnline : -1);
+                row.ping.add(online ? (int) Math.min(result.status.ping, Integer.MAX_VALUE) : -1);
+                fireTableCellUpdated(index, COL_PLAYERS_HISTORY);
+                fireTableCellUpdated(index, COL_PING_HISTORY);
+            }
+
+            String motd = online ? result.status.rawMotd : null;
+            if (!Objects.equals(motd, row.motdSource) || row.motdLabel == null) {
+                row.motdSource = motd;
+                row.motdLabel = new JLabel(motd == null ? "" : MotdFormatter.html(motd));
+                row.motdLabel.setOpaque(true);
+                fireTableCellUpdated(index, COL_MOTD);
+            }
+
+            String hash = online ? result.status.favicon : null;
+            if (!Objects.equals(hash, row.faviconHash)) {
+                row.faviconHash = hash;
+                row.favicon = GUI.icon(hash, FAVICON_SIZE);
+                fireTableCellUpdated(index, COL_SERVER);
+            }
+        }
+
+        private static String status(ServerResult result) {
+            if (result == null) return i18n.getString("dashboard.pending");
+            if (result.isOnline()) return i18n.getString("dashboard.online");
+            if (result.isTimedOut()) return i18n.getString("dashboard.timeout");
+            return i18n.getString("dashboard.offline");
+        }
+    }
+
+    /** 迷你走势图：按当前窗口内的最小/最大值缩放，离线点断开 */
+    static final class SparklineRenderer extends JComponent implements TableCellRenderer {
+        private final Color color;
+        private Sparkline data;
+        private boolean selected;
+        private Color selectionBackground;
+
+        SparklineRenderer(Color color) {
+            this.color = color;
+        }
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                       boolean hasFocus, int row, int column) {
+            data = (Sparkline) value;
+            selected = isSelected;
+            selectionBackground = table.getSelectionBackground();
+            return this;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            int w = getWidth();
+            int h = getHeight();
+            if (selected) {
+                g.setColor(selectionBackground);
+                g.fillRect(0, 0, w, h);
+            }
+            Sparkline d = data;
+            if (d == null || d.size() < 2) return;
+
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < d.size(); i++) {
+                int v = d.get(i);
+                if (v < 0) continue;
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+            if (min > max) return; // 全部离线
+
+            Graphics2D g2 = (Graphics2D) g;
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setColor(color);
+            int pad = 3;
+            double dx = (double) (w - 2 * pad) / (HISTORY_POINTS - 1);
+            double scale = max == min ? 0 : (double) (h - 2 * pad) / (max - min);
+            int offset = HISTORY_POINTS - d.size(); // 数据不足时靠右对齐
+            int prevX = -1;
+            int prevY = -1;
+            for (int i = 0; i < d.size(); i++) {
+                int v = d.get(i);
+                if (v < 0) {
+                    prevX = -1;
+                    continue;
+                }
+                int x = pad + (int) Math.round((offset + i) * dx);
+                int y = max == min ? h / 2 : h - pad - (int) Math.round((v - min) * scale);
+                if (prevX >= 0) {
+                    g2.drawLine(prevX, prevY, x, y);
+                }
+                prevX = x;
+                prevY = y;
+            }
+        }
+    }
+
+    /** 服务器列：图标 + 地址 */
+    static final class ServerRenderer extends DefaultTableCellRenderer {
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                       boolean hasFocus, int row, int column) {
+            Row r = (Row) value;
+            super.getTableCellRendererComponent(table, r.address, isSelected, hasFocus, row, column);
+            setIcon(r.favicon);
+            return this;
+        }
+    }
+
+    /** MOTD 列直接使用行中缓存的 JLabel，HTML 只在 MOTD 变化时解析一次 */
+    static final class MotdRenderer implements TableCellRenderer {
+        private final JLabel empty = new JLabel();
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                       boolean hasFocus, int row, int column) {
+            JLabel label = ((Row) value).motdLabel;
+            if (label == null) label = empty;
+            label.setBackground(isSelected ? table.getSelectionBackground() : table.getBackground());
+            return label;
+        }
+    }
+
+    private static Dashboard instance;
+
+    private final JFrame frame;
+    private final Model model = new Model();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "dashboard-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+    /** 后台线程产生、等待投递到事件调度线程的结果 */
+    private final ConcurrentLinkedQueue<Object[]> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private volatile int intervalSeconds = DEFAULT_INTERVAL_SECONDS;
+    private volatile boolean refreshRequested;
+
+    /** 打开面板（已打开时切到前台），在事件调度线程中调用 */
+    static void show(Component parent) {
+        if (instance == null) {
+            instance = new Dashboard(parent);
+        }
+        instance.frame.setVisible(true);
+        instance.frame.toFront();
+    }
+
+    private Dashboard(Component parent) {
+        frame = new JFrame(i18n.getString("dashboard.title"));
+        frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        frame.setSize(900, 480);
+        frame.setLocationRelativeTo(parent);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                scheduler.shutdownNow();
+                instance = null;
+            }
+        });
+
+        JTable table = new JTable(model);
+        table.setRowHeight(36);
+        table.setFillsViewportHeight(true);
+        table.getColumnModel().getColumn(COL_PLAYERS_HISTORY).setCellRenderer(new SparklineRenderer(new Color(0x27AE60)));
+        table.getColumnModel().getColumn(COL_PING_HISTORY).setCellRenderer(new SparklineRenderer(new Color(0x2980B9)));
+        table.getColumnModel().getColumn(COL_SERVER).setCellRenderer(new ServerRenderer());
+        table.getColumnModel().getColumn(COL_MOTD).setCellRenderer(new MotdRenderer());
+        DefaultTableCellRenderer right = new DefaultTableCellRenderer();
+        right.setHorizontalAlignment(SwingConstants.RIGHT);
+        table.getColumnModel().getColumn(COL_PLAYERS).setCellRenderer(right);
+        table.getColumnModel().getColumn(COL_PING).setCellRenderer(right);
+        int[] widths = {160, 70, 80, 70, 120, 120, 280};
+        for (int i = 0; i < widths.length; i++) {
+            table.getColumnModel().getColumn(i).setPreferredWidth(widths[i]);
+        }
+
+        // 工具栏：添加 / 删除 / 刷新间隔
+        PlaceholderTextField addressField = new PlaceholderTextField(i18n.getString("gui.example"));
+        addressField.setColumns(24);
+        JButton addButton = new JButton(i18n.getString("dashboard.add"));
+        JButton removeButton = new JButton(i18n.getString("dashboard.remove"));
+        JSpinner interval = new JSpinner(new SpinnerNumberModel(DEFAULT_INTERVAL_SECONDS, 1, 3600, 1));
+        interval.addChangeListener(e -> intervalSeconds = (Integer) interval.getValue());
+
+        Runnable add = () -> {
+            String input = addressField.getText().trim();
+            if (input.isEmpty() || i18n.getString("gui.example").equals(input)) return;
+            model.add(input);
+            addressField.setText("");
+            refreshRequested = true; // 新加入的服务器立即查询一次
+        };
+        addButton.addActionListener(e -> add.run());
+        addressField.addActionListener(e -> add.run());
+        removeButton.addActionListener(e -> {
+            int[] selected = table.getSelectedRows();
+            for (int i = selected.length - 1; i >= 0; i--) {
+                model.remove(table.convertRowIndexToModel(selected[i]));
+            }
+        });
+
+        JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        toolbar.add(addressField);
+        toolbar.add(addButton);
+        toolbar.add(removeButton);
+        toolbar.add(new JLabel(i18n.getString("dashboard.interval")));
+        toolbar.add(interval);
+
+        frame.add(toolbar, BorderLayout.NORTH);
+        frame.add(new JScrollPane(table), BorderLayout.CENTER);
+
+        // 每秒检查一次是否到了刷新时间，调整间隔后立即生效
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            private long lastRefresh;
+            /** 连续失败时只提示一次，成功一轮后恢复 */
+            private boolean failing;
+
+            @Override
+            public void run() {
+                long now = System.nanoTime();
+                if (!refreshRequested && lastRefresh != 0
+                        && now - lastRefresh < TimeUnit.SECONDS.toNanos(intervalSeconds)) {
+                    return;
+                }
+                refreshRequested = false;
+                lastRefresh = now;
+                try {
+                    refresh();
+                    failing = false;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt(); // 窗口关闭
+                } catch (Exception e) {
+                    // 继续下一轮；invokeAndWait 把异常包装在 InvocationTargetException 中
+                    if (!failing) {
+                        failing = true;
+                        Throwable cause = e.getCause() != null ? e.getCause() : e;
+                        System.err.println(i18n.getString("dashboard.refreshFailed") + cause);
+                    }
+                }
+            }
+        }, 0, 1, TimeUnit.SECONDS);
+    }
+
+    /** 一轮刷新：对当前所有行发起批量查询，结束后才开始计算下一轮的间隔 */
+    private void refresh() throws Exception {
+        List<Row> snapshot = new ArrayList<>();
+        SwingUtilities.invokeAndWait(() -> snapshot.addAll(model.rows));
+        if (snapshot.isEmpty()) return;
+
+        List<String> addresses = new ArrayList<>(snapshot.size());
+        for (Row row : snapshot) {
+            addresses.add(row.address);
+        }
+        PingService pings = GUI.pings();
+        BatchRunner.run(addresses, pings.getConfig(), pings::query, (index, address, result) -> {
+            pending.add(new Object[]{snapshot.get(index), result});
+            if (drainScheduled.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(this::drain);
+            }
+        });
+    }
+
+    /** 在事件调度线程中一次应用所有待处理的结果 */
+    private void drain() {
+        drainScheduled.set(false);
+        Object[] item;
+        while ((item = pending.poll()) != null) {
+            model.update((Row) item[0], (ServerResult) item[1]);
+        }
+    }
+}
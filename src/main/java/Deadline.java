@@ -0,0 +1,48 @@
+/**
+ * 一次查询的时间预算：连接超时、读取超时，以及覆盖 SRV 查询 + 排队 + ping 全过程的总超时
+ * 每个阶段实际可用的时间 = min(阶段超时, 总预算剩余时间)
+ */
+public final class Deadline {
+    /** 默认超时（毫秒），与 MinecraftPinger 的 5 秒一致 */
+    static final long DEFAULT_CONNECT_MILLIS = 5000;
+    static final long DEFAULT_READ_MILLIS = 5000;
+    static final long DEFAULT_TOTAL_MILLIS = 10000;
+
+    private final long connectMillis;
+    private final long readMillis;
+    private final long expiresAtNanos;
+
+    private Deadline(long connectMillis, long readMillis, long totalMillis) {
+        this.connectMillis = connectMillis;
+        this.readMillis = readMillis;
+        this.expiresAtNanos = System.nanoTime() + totalMillis * 1_000_000;
+    }
+
+    /** 从现在开始计时的新预算 */
+    public static Deadline of(long connectMillis, long readMillis, long totalMillis) {
+        return new Deadline(connectMillis, readMillis, totalMillis);
+    }
+
+    public static Deadline defaults() {
+        return of(DEFAULT_CONNECT_MILLIS, DEFAULT_READ_MILLIS, DEFAULT_TOTAL_MILLIS);
+    }
+
+    /** 总预算剩余时间（毫秒），已超时返回 0 */
+    public long remainingMillis() {
+        return Math.max(0, (expiresAtNanos - System.nanoTime()) / 1_000_000);
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    /** 本次连接可用的时间 */
+    public long connectMillis() {
+        return Math.min(connectMillis, remainingMillis());
+    }
+
+    /** 连接建立后读取响应可用的时间 */
+    public long readMillis() {
+        return Math.min(readMillis, remainingMillis());
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * 查询在总超时内没有完成
+ */
+public class DeadlineExceededException extends RuntimeException {
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,249 @@
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 服务器图标（favicon）的内容寻址缓存
+ * - 状态响应中的 data:image/png;base64,... 按 base64 内容计算哈希，第一次见到时才解码，保存 PNG 字节
+ * - 查询结果只引用哈希，JSON（尤其是批量和面板）不再携带几 KB 的 base64
+ * - 内存中按总字节数做 LRU；配置了目录时被淘汰的图标写入磁盘，之后按需读回
+ * - 查询结果（PingStatus）持有 PNG 字节的引用：被淘汰但仍有结果引用的图标通过弱引用取回，
+ *   不会出现结果里有哈希、/api/favicon 却返回 404 的情况
+ */
+final class FaviconStore {
+
+    private static final String PREFIX = "data:image/png;base64,";
+    /** 解码后超过该大小的图标直接丢弃（原版客户端要求 64×64 PNG，通常只有几 KB） */
+    private static final int MAX_ICON_BYTES = 256 * 1024;
+    /** 哈希长度：SHA-256 的前 16 字节，32 个十六进制字符 */
+    private static final int HASH_BYTES = 16;
+
+    private static final LinkedHashMap<String, byte[]> icons = new LinkedHashMap<>(16, 0.75f, true);
+    private static long totalBytes;
+    private static volatile long maxBytes = 16L * 1024 * 1024;
+    /** 溢出目录，null 表示只保存在内存中 */
+    private static volatile Path spillDir;
+    /** 已写入磁盘的哈希，判断是否存在时不访问文件系统 */
+    private static final Set<String> spilled = ConcurrentHashMap.newKeySet();
+    /** 已从 LRU 淘汰的图标，只要还有查询结果引用就能取回 */
+    private static final ConcurrentHashMap<String, Evicted> evicted = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<byte[]> collected = new ReferenceQueue<>();
+
+    private static final class Evicted extends WeakReference<byte[]> {
+        final String hash;
+
+        Evicted(String hash, byte[] png) {
+            super(png, collected);
+            this.hash = hash;
+        }
+    }
+
+    private FaviconStore() {
+    }
+
+    /**
+     * 设置内存上限和溢出目录（server 模式启动时调用）
+     * @param dir null 表示不写磁盘
+     * @throws IOException 目录无法创建或读取，此时只使用内存
+     */
+    static void configure(long memoryBytes, Path dir) throws IOException {
+        maxBytes = memoryBytes;
+        Metrics.gauge("mcserverinfo_favicon_cache_bytes", "Favicon bytes held in memory", FaviconStore::memoryBytes);
+        if (dir != null) {
+            Files.createDirectories(dir);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.png")) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    String hash = name.substring(0, name.length() - ".png".length());
+                    if (isHash(hash)) spilled.add(hash);
+                }
+            }
+        }
+        spillDir = dir;
+    }
+
+    /** 提前初始化 SHA-256：第一次取得 MessageDigest 要加载安全提供者，冷启动时需要几十毫秒 */
+    static void warmUp() {
+        hash(new byte[0]);
+    }
+
+    static long memoryBytes() {
+        synchronized (icons) {
+            return totalBytes;
+        }
+    }
+
+    /**
+     * 保存状态响应中的图标
+     * @param dataUri favicon 字段（data:image/png;base64,...），可以为 null
+     * @return 内容哈希；没有图标或无法解码时返回 null
+     */
+    static String put(String dataUri) {
+        if (dataUri == null || !dataUri.startsWith(PREFIX)) return null;
+        byte[] payload = dataUri.substring(PREFIX.length()).getBytes(StandardCharsets.ISO_8859_1);
+        String hash = hash(payload);
+        synchronized (icons) {
+            if (icons.get(hash) != null) return hash; // get 同时刷新 LRU 顺序
+        }
+        byte[] referenced = referenced(hash);
+        if (referenced != null) {
+            store(hash, referenced);
+            return hash;
+        }
+        if (spilled.contains(hash)) return hash;
+
+        byte[] png;
+        try {
+            // MIME 解码器忽略换行，部分服务端会在 base64 中换行
+            png = Base64.getMimeDecoder().decode(payload);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (png.length == 0 || png.length > MAX_ICON_BYTES) return null;
+        store(hash, png);
+        return hash;
+    }
+
+    /**
+     * 按哈希读取 PNG（内存 → 磁盘）
+     * @return 不存在（或已被淘汰且没有溢出目录）时返回 null
+     */
+    static byte[] get(String hash) {
+        if (hash == null) return null;
+        byte[] png;
+        synchronized (icons) {
+            png = icons.get(hash);
+        }
+        if (png != null) {
+            Metrics.FAVICON_CACHE.increment("hit");
+            return png;
+        }
+        png = referenced(hash);
+        if (png != null) {
+            Metrics.FAVICON_CACHE.increment("referenced");
+            store(hash, png);
+            return png;
+        }
+        Path dir = spillDir;
+        if (dir != null && spilled.contains(hash)) {
+            try {
+                png = Files.readAllBytes(dir.resolve(hash + ".png"));
+                Metrics.FAVICON_CACHE.increment("disk");
+                store(hash, png);
+                return png;
+            } catch (IOException e) {
+                spilled.remove(hash);
+            }
+        }
+        Metrics.FAVICON_CACHE.increment("miss");
+        return null;
+    }
+
+    /**
+     * 查询结果创建时调用：返回内存中的 PNG 字节供结果持有，使其在结果存活期间不会丢失
+     * 不计入命中统计；不在内存中时返回 null
+     */
+    static byte[] pin(String hash) {
+        if (hash == null) return null;
+        synchronized (icons) {
+            byte[] png = icons.get(hash);
+            if (png != null) return png;
+        }
+        return referenced(hash);
+    }
+
+    /** 已淘汰但仍被引用的图标，没有则返回 null */
+    private static byte[] referenced(String hash) {
+        Evicted ref = evicted.get(hash);
+        return ref == null ? null : ref.get();
+    }
+
+    /** 32 个小写十六进制字符（同时防止拼接文件名时路径穿越） */
+    static boolean isHash(String s) {
+        if (s.length() != HASH_BYTES * 2) return false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) return false;
+        }
+        return true;
+    }
+
+    private static void store(String hash, byte[] png) {
+        List<Map.Entry<String, byte[]>> removed = null;
+        synchronized (icons) {
+            byte[] old = icons.put(hash, png);
+            if (old != null) totalBytes -= old.length;
+            totalBytes += png.length;
+            // 至少保留刚放入的一个
+            Iterator<Map.Entry<String, byte[]>> it = icons.entrySet().iterator();
+            while (totalBytes > maxBytes && icons.size() > 1) {
+                Map.Entry<String, byte[]> eldest = it.next();
+                totalBytes -= eldest.getValue().length;
+                it.remove();
+                if (removed == null) removed = new ArrayList<>();
+                removed.add(eldest);
+            }
+        }
+        // 清理已被回收的弱引用
+        for (Evicted ref; (ref = (Evicted) collected.poll()) != null; ) {
+            evicted.remove(ref.hash, ref);
+        }
+        evicted.remove(hash); // 已回到 LRU
+        if (removed == null) return;
+        for (Map.Entry<String, byte[]> e : removed) {
+            evicted.put(e.getKey(), new Evicted(e.getKey(), e.getValue()));
+        }
+        Path dir = spillDir;
+        if (dir != null) {
+            List<Map.Entry<String, byte[]>> toSpill = removed;
+            // 不在调用线程上写磁盘
+            Thread.startVirtualThread(() -> spill(dir, toSpill));
+        }
+    }
+
+    private static void spill(Path dir, List<Map.Entry<String, byte[]>> entries) {
+        for (Map.Entry<String, byte[]> e : entries) {
+            if (spilled.contains(e.getKey())) continue;
+            Path file = dir.resolve(e.getKey() + ".png");
+            Path tmp = dir.resolve(e.getKey() + ".tmp");
+            try {
+                Files.write(tmp, e.getValue());
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                spilled.add(e.getKey());
+            } catch (IOException ex) {
+                // 写入失败只是没有磁盘副本，之后需要时按未命中处理
+            }
+        }
+    }
+
+    private static String hash(byte[] data) {
+        MessageDigest sha;
+        try {
+            sha = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // 所有 JRE 都必须提供 SHA-256
+        }
+        byte[] digest = sha.digest(data);
+        char[] hex = new char[HASH_BYTES * 2];
+        for (int i = 0; i < HASH_BYTES; i++) {
+            hex[2 * i] = Character.forDigit((digest[i] >> 4) & 0xF, 16);
+            hex[2 * i + 1] = Character.forDigit(digest[i] & 0xF, 16);
+        }
+        return new String(hex);
+    }
+}
@@ -7,20 +7,32 @@ import java.awt.event.ActionListener;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.net.URL;
+import java.util.List;
 import java.util.ResourceBundle;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 
 public class GUI {
 
-    static ResourceBundle i18n = Main.i18n;
+    static ResourceBundle i18n = Main.i18n();
 
-    private static String sanitizeInput(String text) {
-        if (text == null) return null;
-        // 移除 C0 控制字符（除了 \t \n \r）
-        return text.replaceAll("[\\x00-\\x08\\x0B\\x0C\\x0E-\\x1F\\x7F]", "");
+    /** 两次回车之间的最短间隔（毫秒），更快的重复回车被忽略 */
+    private static final long ENTER_DEBOUNCE_MILLIS = 300;
+
+    /** 与 server 模式相同的查询流水线：结果缓存 + 合并并发请求，默认配置 */
+    private static PingService pings;
+
+    static synchronized PingService pings() {
+        if (pings == null) {
+            pings = new PingService(new Config());
+        }
+        return pings;
     }
 
+    /** 当前进行中的查询，只在事件调度线程中访问 */
+    private static QueryTask current;
+
     public static void startGui() {
         // 设置 FlatLaf 外观（现代风格）
         try {
@@ -43,7 +55,7 @@ public class GUI {
         // 创建主窗口
         JFrame frame = new JFrame("MCServerInfo");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        frame.setSize(420, 210);
+        frame.setSize(420, 240);
         frame.setLocationRelativeTo(null); // 居中
         frame.setResizable(false); // 可选：禁止缩放
 
@@ -96,6 +108,17 @@ public class GUI {
         button.setMaximumSize(new Dimension(140, 40));
         button.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR)); // 手型光标
 
+        // 查询进度：进行中时显示当前阶段和不确定进度条
+        JLabel statusLabel = new JLabel(" ", SwingConstants.CENTER);
+        statusLabel.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 11));
+        statusLabel.setForeground(Color.GRAY);
+        statusLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setMaximumSize(new Dimension(380, 4));
+        progressBar.setAlignmentX(Component.CENTER_ALIGNMENT);
+        progressBar.setVisible(false);
+
         // About
         // 创建一个面板来容纳 about 和 version，使用 BorderLayout
         JPanel infoPanel = new JPanel(new BorderLayout());
@@ -106,8 +129,18 @@ public class GUI {
         version.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 10));
         about.setForeground(Color.GRAY);
         version.setForeground(Color.GRAY);
+        // 监控面板入口（多服务器定时刷新）
+        JButton dashboardButton = new JButton(i18n.getString("gui.dashboard"));
+        dashboardButton.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 10));
+        dashboardButton.setFocusPainted(false);
+        dashboardButton.setBorderPainted(false);
+        dashboardButton.setContentAreaFilled(false);
+        dashboardButton.setForeground(new Color(0x2980B9));
+        dashboardButton.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        dashboardButton.addActionListener(e -> Dashboard.show(frame));
         // 将左标签放在 WEST，右标签放在 EAST
         infoPanel.add(about, BorderLayout.WEST);
+        infoPanel.add(dashboardButton, BorderLayout.CENTER);
         infoPanel.add(version, BorderLayout.EAST);
         infoPanel.setAlignmentY(Component.BOTTOM_ALIGNMENT);
 
@@ -119,22 +152,35 @@ public class GUI {
         panel.add(textField);
         panel.add(Box.createRigidArea(new Dimension(0, 16)));
         panel.add(button);
+        panel.add(Box.createRigidArea(new Dimension(0, 8)));
+        panel.add(progressBar);
+        panel.add(statusLabel);
         panel.add(infoPanel);
 
-        // 为输入框添加回车监听
+        // 为输入框添加回车监听：查询进行中或连续快速回车时忽略（取消只能点按钮）
+        long[] lastEnter = {0};
         textField.addKeyListener(new KeyAdapter() {
             @Override
             public void keyPressed(KeyEvent e) {
                 if (e.getKeyCode() == KeyEvent.VK_ENTER) {
+                    long now = System.currentTimeMillis();
+                    if (current != null || now - lastEnter[0] < ENTER_DEBOUNCE_MILLIS) return;
+                    lastEnter[0] = now;
                     button.doClick(); // 触发按钮点击事件（推荐）
                 }
             }
         });
 
-        // 按钮事件
+        // 按钮事件：空闲时开始查询，查询中则取消
         button.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
+                if (current != null) {
+                    // 中断后台线程：Pinger.ping 随之取消进行中的连接，不会在后台继续跑完
+                    current.cancel(true);
+                    return;
+                }
+
                 String input = textField.getText().trim();
 
                 if (input.isEmpty() || i18n.getString("gui.example").equals(input)) {
@@ -142,45 +188,46 @@ public class GUI {
                     return;
                 }
 
-                Main.HostPort hostPort;
-                try {
-                    hostPort = Main.parseHostPort(input);
-                } catch (IllegalArgumentException ex) {
-                    JOptionPane.showMessageDialog(frame,
-                            i18n.getString("gui.wrongAddress") + "\n" + ex.getMessage(),
-                            i18n.getString("gui.invalidInput"), JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-
-                // 获取文本和 JSON 格式结果
-                Main.ServerResult result = Main.queryServerResult(hostPort.host, hostPort.port);
-                String text = result.text;
-                String json = result.json;
-
-                // 创建自定义按钮
-                JButton copyButton = new JButton(i18n.getString("gui.copyJson"));
-                copyButton.addActionListener(ev -> {
-                    // 将 JSON 复制到系统剪贴板
-                    StringSelection selection = new StringSelection(json);
-                    Toolkit.getDefaultToolkit().getSystemClipboard().setContents(selection, null);
-                    // 可选：提示用户已复制
-                    JOptionPane.showMessageDialog(frame, i18n.getString("gui.jsonCopied"), i18n.getString("gui.Copied"), JOptionPane.INFORMATION_MESSAGE);
-                });
-
-                // 使用 Object[] 定义按钮（注意顺序）
-                Object[] options = {i18n.getString("gui.ok"), copyButton};
-
-                // 显示自定义选项对话框
-                JOptionPane.showOptionDialog(
-                        frame,
-                        AnsiToHtml.toHtml(sanitizeInput(text)),
-                        i18n.getString("gui.serverInfo"),
-                        JOptionPane.DEFAULT_OPTION,
-                        JOptionPane.INFORMATION_MESSAGE,
-                        null,
-                        options,
-                        options[0]
-                );
+                // SRV 查询和 ping 都在后台线程中进行，窗口保持响应
+                current = new QueryTask(input) {
+                    @Override
+                    protected void process(List<String> phases) {
+                        if (current == this) {
+                            statusLabel.setText(phases.get(phases.size() - 1));
+                        }
+                    }
+
+                    @Override
+                    protected void done() {
+                        current = null;
+                        button.setText(i18n.getString("gui.getInfo"));
+                        progressBar.setVisible(false);
+                        statusLabel.setText(" ");
+                        panel.revalidate();
+
+                        ServerResult result;
+                        try {
+                            result = get();
+                        } catch (CancellationException | InterruptedException ex) {
+                            return; // 用户取消，不显示结果
+                        } catch (ExecutionException ex) {
+                            Throwable cause = ex.getCause();
+                            if (cause instanceof IllegalArgumentException) {
+                                JOptionPane.showMessageDialog(frame,
+                                        i18n.getString("gui.wrongAddress") + "\n" + cause.getMessage(),
+                                        i18n.getString("gui.invalidInput"), JOptionPane.ERROR_MESSAGE);
+                                return;
+                            }
+                            result = ServerResult.failure(input, String.valueOf(cause.getMessage()));
+                        }
+                        showResult(frame, result);
+                    }
+                };
+                button.setText(i18n.getString("gui.cancel"));
+                statusLabel.setText(i18n.getString("gui.resolving"));
+                progressBar.setVisible(true);
+                panel.revalidate();
+                current.execute();
             }
         });
 
@@ -188,105 +235,76 @@ public class GUI {
         frame.add(panel);
         frame.setVisible(true);
     }
-}
 
-class AnsiToHtml {
-    private static final Pattern ANSI_PATTERN = Pattern.compile("\\[(\\d+)(?:;(\\d+))?m");
+    /**
+     * 后台查询：解析地址（可能查询 SRV）→ 经由 PingService 查询（共享缓存、合并同一服务器的并发查询）
+     * 中间结果为当前阶段的提示文字
+     */
+    private static class QueryTask extends SwingWorker<ServerResult, String> {
+        private final String input;
 
-    public static String toHtml(String text) {
-        if (text == null || text.isEmpty()) return "<html><body></body></html>";
-
-        // 先按 \n 分割文本，逐行处理（保留换行）
-        String[] lines = text.split("\n", -1); // -1 保留末尾空行
-        StringBuilder html = new StringBuilder("<html><body style='font-family:sans-serif;'>");
-
-        for (int i = 0; i < lines.length; i++) {
-            if (i > 0) html.append("<br>"); // 每行之间加 <br>
-            html.append(processLine(lines[i]));
+        QueryTask(String input) {
+            this.input = input;
         }
 
-        html.append("</body></html>");
-        return html.toString();
-    }
-
-    private static String processLine(String line) {
-        StringBuilder html = new StringBuilder();
-        int pos = 0;
-        boolean bold = false;
-        String currentColor = "white";
-
-        String[] colors = {
-                // 基础颜色 (0-7)
-                "#000000", // 0 黑色 → 深灰更清晰: "#222222"
-                "#CC0000", // 1 深红 → 更鲜艳
-                "#00CC00", // 2 深绿 → 更亮绿
-                "#CC7700", // 3 深黄 → 橙棕色，更清晰
-                "#0000CC", // 4 深蓝 → 更亮蓝
-                "#CC00CC", // 5 深粉 → 更鲜艳
-                "#00CCCC", // 6 深青 → 保留
-                "#777777", // 7 灰 → 改为中灰，避免太暗或太亮
-
-                // 亮色 (8-15)
-                "#555555", // 8 深灰（重置）→ 用于背景文本
-                "#FF5555", // 9 亮红 → 保留（警告/错误）
-                "#55FF55", // 10 亮绿 → 保留（成功）
-                "#FFBB00", // 11 亮黄 → ✅ 推荐！琥珀色，清晰可见
-                "#5555FF", // 12 亮蓝 → 改为 "#3366FF" 更清晰
-                "#FF55FF", // 13 亮粉 → 改为 "#FF33CC" 更鲜艳
-                "#00FFFF", // 14 青蓝 → 保留（Cyan）
-                "#FFFFFF"  // 15 白 → 保留（高亮文本）
-        };
-
-        Matcher matcher = ANSI_PATTERN.matcher(line);
-        while (matcher.find()) {
-            // 添加普通文本
-            html.append(escapeHtml(line.substring(pos, matcher.start())));
-
-            int code = Integer.parseInt(matcher.group(1));
-            int subCode = matcher.group(2) != null ? Integer.parseInt(matcher.group(2)) : -1;
-
-            if (code == 0) {
-                if (bold) html.append("</b>");
-                html.append("</font>");
-                bold = false;
-                currentColor = "white";
-            } else if (code == 1) {
-                html.append("<b>");
-                bold = true;
-            } else if ((code >= 30 && code <= 37) || (code >= 90 && code <= 97)) {
-                int idx = code < 90 ? code - 30 : code - 90 + 8;
-                if (idx >= 0 && idx < colors.length) {
-                    currentColor = colors[idx];
-                }
-                html.append(String.format("<font color='%s'>", currentColor));
-            } else if (subCode >= 90 && subCode <= 97) {
-                int idx = subCode - 90 + 8;
-                if (idx >= 0 && idx < colors.length) {
-                    currentColor = colors[idx];
-                }
-                html.append(String.format("<font color='%s'>", currentColor));
-            } else {
-                html.append(String.format("<font color='%s'>", currentColor));
+        @Override
+        protected ServerResult doInBackground() {
+            PingService service = pings();
+            Deadline deadline = service.getConfig().newDeadline();
+            Main.HostPort hostPort = Main.parseHostPort(input, deadline); // 地址非法时抛出 IllegalArgumentException
+            publish(i18n.getString("gui.pinging") + hostPort);
+            try {
+                return service.query(hostPort, deadline);
+            } catch (DeadlineExceededException e) {
+                return new ServerResult(hostPort.host, hostPort.port, PingStatus.timeout(e.getMessage()));
+            } catch (RejectedExecutionException | RateLimitedException e) {
+                return new ServerResult(hostPort.host, hostPort.port, PingStatus.offline(e.getMessage()));
             }
-
-            pos = matcher.end();
         }
+    }
 
-        // 添加最后一段文本
-        html.append(escapeHtml(line.substring(pos)));
-
-        // 闭合标签
-        if (bold) html.append("</b>");
-        if (!currentColor.equals("white")) html.append("</font>");
+    /** 显示查询结果对话框（JSON 在点击复制时才生成） */
+    private static void showResult(JFrame frame, ServerResult result) {
+        // 创建自定义按钮
+        JButton copyButton = new JButton(i18n.getString("gui.copyJson"));
+        copyButton.addActionListener(ev -> {
+            // 将 JSON 复制到系统剪贴板
+            StringSelection selection = new StringSelection(result.json());
+            Toolkit.getDefaultToolkit().getSystemClipboard().setContents(selection, null);
+            // 可选：提示用户已复制
+            JOptionPane.showMessageDialog(frame, i18n.getString("gui.jsonCopied"), i18n.getString("gui.Copied"), JOptionPane.INFORMATION_MESSAGE);
+        });
 
-        return html.toString();
+        // 使用 Object[] 定义按钮（注意顺序）
+        Object[] options = {i18n.getString("gui.ok"), copyButton};
+
+        // 服务器图标代替默认的信息图标（没有图标时为 null，使用默认图标）
+        Icon favicon = icon(result.status.favicon, 0);
+
+        // 显示自定义选项对话框
+        JOptionPane.showOptionDialog(
+                frame,
+                result.html(),
+                i18n.getString("gui.serverInfo"),
+                JOptionPane.DEFAULT_OPTION,
+                JOptionPane.INFORMATION_MESSAGE,
+                favicon,
+                options,
+                options[0]
+        );
     }
 
-    private static String escapeHtml(String s) {
-        return s.replace("&", "&amp;")
-                .replace("<", "<")
-                .replace(">", ">")
-                .replace("\"", "&quot;")
-                .replace("'", "&#x27;");
+    /**
+     * 服务器图标（FaviconStore 中的 PNG）
+     * @param size 边长（像素），0 表示原始大小
+     * @return 没有图标时返回 null
+     */
+    static ImageIcon icon(String hash, int size) {
+        byte[] png = FaviconStore.get(hash);
+        if (png == null) return null;
+        ImageIcon icon = new ImageIcon(png);
+        if (icon.getIconWidth() <= 0) return null; // 不是有效的图片
+        if (size <= 0 || icon.getIconWidth() == size) return icon;
+        return new ImageIcon(icon.getImage().getScaledInstance(size, size, Image.SCALE_SMOOTH));
     }
-}
\ No newline at end of file
+}
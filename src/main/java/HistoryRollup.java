@@ -0,0 +1,371 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 历史数据的分级汇总：1 分钟 / 1 小时 / 1 天
+ * - 每次 ping 结果到达时同时更新三级，每级只改一个桶
+ * - 每个桶保存样本数、在线次数、在线人数的最小/最大/总和，以及延迟分布
+ * - 每级是固定容量的环形数组，查询的工作量只取决于桶数，与样本数量无关
+ * - 环形数组在第一次写入该级时才分配，桶和延迟分布也只在有数据时创建
+ *
+ * 持久化：原始历史只保留 --history-retention 天，不足以重建 400 天的天级汇总
+ * - 已结束的小时级、天级桶写入快照文件（每过一个整点、以及退出时）
+ * - 启动时先读快照，再从原始历史补上快照之后的部分；分钟级只有 6 小时，全部从原始历史重建
+ */
+public class HistoryRollup {
+
+    /** 汇总级别：桶宽度和保留的桶数 */
+    enum Tier {
+        MINUTE("minute", 60_000L, 6 * 60),          // 6 小时
+        HOUR("hour", 3_600_000L, 31 * 24),          // 31 天
+        DAY("day", 86_400_000L, 400);               // 400 天
+
+        final String label;
+        final long widthMillis;
+        final int capacity;
+
+        Tier(String label, long widthMillis, int capacity) {
+            this.label = label;
+            this.widthMillis = widthMillis;
+            this.capacity = capacity;
+        }
+
+        long retentionMillis() {
+            return widthMillis * capacity;
+        }
+
+        static Tier of(String label) {
+            for (Tier t : values()) {
+                if (t.label.equals(label)) return t;
+            }
+            return null;
+        }
+    }
+
+    /** 一个时间桶 */
+    static final class Bucket {
+        long start;
+        int samples;
+        int online;
+        int timedOut;
+        int playersMin;
+        int playersMax;
+        long playersSum;
+        /** 延迟分布，有在线样本时才创建 */
+        LatencySketch latency;
+
+        void reset(long start) {
+            this.start = start;
+            samples = 0;
+            online = 0;
+            timedOut = 0;
+            playersMin = Integer.MAX_VALUE;
+            playersMax = 0;
+            playersSum = 0;
+            if (latency != null) latency.clear();
+        }
+
+        void add(boolean isOnline, boolean isTimedOut, int players, long ping) {
+            samples++;
+            if (isTimedOut) timedOut++;
+            if (!isOnline) return;
+            online++;
+            playersMin = Math.min(playersMin, players);
+            playersMax = Math.max(playersMax, players);
+            playersSum += players;
+            if (latency == null) latency = new LatencySketch();
+            latency.add(ping);
+        }
+
+        void merge(Bucket other) {
+            samples += other.samples;
+            online += other.online;
+            timedOut += other.timedOut;
+            playersMin = Math.min(playersMin, other.playersMin);
+            playersMax = Math.max(playersMax, other.playersMax);
+            playersSum += other.playersSum;
+            if (other.latency != null) {
+                if (latency == null) latency = new LatencySketch();
+                latency.merge(other.latency);
+            }
+        }
+
+        Bucket copy() {
+            Bucket b = new Bucket();
+            b.reset(start);
+            b.merge(this);
+            return b;
+        }
+    }
+
+    /** 一个服务器的三级环形数组 */
+    private static final class Series {
+        /** 每级的环形数组，第一次写入该级时才分配 */
+        final Bucket[][] rings = new Bucket[Tier.values().length][];
+
+        private Bucket[] ring(Tier t) {
+            Bucket[] ring = rings[t.ordinal()];
+            if (ring == null) {
+                rings[t.ordinal()] = ring = new Bucket[t.capacity];
+            }
+            return ring;
+        }
+
+        private static int slot(Tier t, long start) {
+            return (int) Math.floorMod(start / t.widthMillis, (long) t.capacity);
+        }
+
+        /**
+         * @param since 每级只接收不早于该时间的样本（该级更早的部分已从快照恢复）
+         */
+        synchronized void add(long timestamp, boolean online, boolean timedOut, int players, long ping, long[] since) {
+            for (Tier t : Tier.values()) {
+                if (timestamp < since[t.ordinal()]) continue;
+                long start = timestamp - Math.floorMod(timestamp, t.widthMillis);
+                Bucket[] ring = ring(t);
+                int slot = slot(t, start);
+                Bucket b = ring[slot];
+                if (b == null) {
+                    ring[slot] = b = new Bucket();
+                    b.reset(start);
+                } else if (b.start != start) {
+                    if (b.start > start) continue; // 比环内数据还旧的样本直接丢弃
+                    b.reset(start);                 // 环已绕回，复用旧桶
+                }
+                b.add(online, timedOut, players, ping);
+            }
+        }
+
+        /** 放入从快照读取的桶，槽位中已有更新的桶时丢弃 */
+        synchronized void restore(Tier t, Bucket b) {
+            Bucket[] ring = ring(t);
+            int slot = slot(t, b.start);
+            if (ring[slot] == null || ring[slot].start < b.start) {
+                ring[slot] = b;
+            }
+        }
+
+        /** 复制结束时间不晚于 before 的桶（写快照用） */
+        synchronized List<Bucket> closed(Tier t, long before) {
+            List<Bucket> out = new ArrayList<>();
+            Bucket[] ring = rings[t.ordinal()];
+            if (ring == null) return out;
+            for (Bucket b : ring) {
+                if (b != null && b.samples > 0 && b.start + t.widthMillis <= before) {
+                    out.add(b.copy());
+                }
+            }
+            return out;
+        }
+
+        /** 复制 [from, to] 内有数据的桶（按时间顺序） */
+        synchronized List<Bucket> range(Tier tier, long from, long to) {
+            List<Bucket> out = new ArrayList<>();
+            Bucket[] ring = rings[tier.ordinal()];
+            if (ring == null) return out;
+            // 环里最多只有 capacity 个桶，更早的起点没有意义
+            long start0 = Math.max(from, to - tier.retentionMillis() + tier.widthMillis);
+            long first = start0 - Math.floorMod(start0, tier.widthMillis);
+            long count = Math.min(tier.capacity, (to - first) / tier.widthMillis + 1);
+            for (long n = 0; n < count; n++) {
+                long start = first + n * tier.widthMillis;
+                Bucket b = ring[slot(tier, start)];
+                if (b != null && b.start == start && b.samples > 0) {
+                    out.add(b.copy());
+                }
+            }
+            return out;
+        }
+    }
+
+    /** 自动选择级别时，返回的桶数不超过该值 */
+    static final int MAX_AUTO_BUCKETS = 500;
+
+    /** 快照文件名（位于历史目录中） */
+    static final String SNAPSHOT_FILE = "rollup.dat";
+    private static final int MAGIC = 0x4D435352; // "MCSR"
+    private static final int VERSION = 1;
+    /** 写入快照的级别 */
+    private static final Tier[] PERSISTED = {Tier.HOUR, Tier.DAY};
+    /** 实时记录：所有级别都接收 */
+    private static final long[] ALL_TIERS = {Long.MIN_VALUE, Long.MIN_VALUE, Long.MIN_VALUE};
+
+    private final ConcurrentHashMap<String, Series> series = new ConcurrentHashMap<>();
+    /** 快照文件，为 null 时只在内存中 */
+    private final Path snapshotFile;
+    /** 上一次写快照时所在的整点 */
+    private final AtomicLong savedHour;
+
+    public HistoryRollup() {
+        this(null);
+    }
+
+    public HistoryRollup(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+        long now = System.currentTimeMillis();
+        this.savedHour = new AtomicLong(now - Math.floorMod(now, Tier.HOUR.widthMillis));
+    }
+
+    /** 记录一次 ping 的结果 */
+    public void record(Main.HostPort hp, long timestamp, PingStatus status) {
+        add(HistoryStore.key(hp), timestamp, status.online, status.timedOut, status.playersOnline, status.ping, ALL_TIERS);
+        // 进入新的整点：上一个小时桶已结束，在后台写快照
+        long hour = timestamp - Math.floorMod(timestamp, Tier.HOUR.widthMillis);
+        long saved = savedHour.get();
+        if (snapshotFile != null && hour > saved && savedHour.compareAndSet(saved, hour)) {
+            Thread.ofVirtual().start(this::save);
+        }
+    }
+
+    void add(String key, long timestamp, boolean online, boolean timedOut, int players, long ping, long[] since) {
+        series.computeIfAbsent(key, k -> new Series()).add(timestamp, online, timedOut, players, ping, since);
+    }
+
+    /**
+     * 启动时调用一次：读取快照中已结束的小时级、天级桶，再从历史记录补上之后的部分
+     * 快照不存在或无法读取时全部从历史记录重建（天级最多覆盖原始历史的保留期）
+     */
+    public void restore(HistoryStore history) {
+        long[] since = ALL_TIERS.clone();
+        if (snapshotFile != null && Files.exists(snapshotFile)) {
+            try {
+                long savedAt = load();
+                // 快照只含 savedAt 之前已结束的桶，同一级之后的样本来自原始历史
+                for (Tier t : PERSISTED) {
+                    since[t.ordinal()] = savedAt - Math.floorMod(savedAt, t.widthMillis);
+                }
+            } catch (IOException | RuntimeException e) {
+                series.clear();
+                Arrays.fill(since, Long.MIN_VALUE);
+                System.err.println(Main.i18n().getString("app.error.rollupSnapshot") + e.getMessage());
+            }
+        }
+        long from = System.currentTimeMillis() - Tier.DAY.retentionMillis();
+        history.replay(from, (key, p) -> add(key, p.timestamp, p.online, p.timedOut, p.playersOnline, p.ping, since));
+    }
+
+    /** 把已结束的小时级、天级桶写入快照（先写临时文件再替换），失败时保留上一次的快照 */
+    public synchronized void save() {
+        if (snapshotFile == null) return;
+        long now = System.currentTimeMillis();
+        Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(now);
+                List<Map.Entry<String, Series>> all = new ArrayList<>(series.entrySet());
+                out.writeInt(all.size());
+                for (Map.Entry<String, Series> e : all) {
+                    out.writeUTF(e.getKey());
+                    for (Tier t : PERSISTED) {
+                        List<Bucket> buckets = e.getValue().closed(t, now);
+                        out.writeInt(buckets.size());
+                        for (Bucket b : buckets) {
+                            writeBucket(out, b);
+                        }
+                    }
+                }
+            }
+            Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println(Main.i18n().getString("app.error.rollupSnapshot") + e.getMessage());
+        }
+    }
+
+    /** 读取快照，返回写入时间 */
+    private long load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a rollup snapshot: " + snapshotFile);
+            }
+            long savedAt = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Series s = series.computeIfAbsent(in.readUTF(), k -> new Series());
+                for (Tier t : PERSISTED) {
+                    int buckets = in.readInt();
+                    for (int j = 0; j < buckets; j++) {
+                        s.restore(t, readBucket(in));
+                    }
+                }
+            }
+            return savedAt;
+        }
+    }
+
+    private static void writeBucket(DataOutputStream out, Bucket b) throws IOException {
+        out.writeLong(b.start);
+        out.writeInt(b.samples);
+        out.writeInt(b.online);
+        out.writeInt(b.timedOut);
+        out.writeInt(b.playersMin);
+        out.writeInt(b.playersMax);
+        out.writeLong(b.playersSum);
+        out.writeBoolean(b.latency != null);
+        if (b.latency != null) {
+            b.latency.writeTo(out);
+        }
+    }
+
+    private static Bucket readBucket(DataInputStream in) throws IOException {
+        Bucket b = new Bucket();
+        b.reset(in.readLong());
+        b.samples = in.readInt();
+        b.online = in.readInt();
+        b.timedOut = in.readInt();
+        b.playersMin = in.readInt();
+        b.playersMax = in.readInt();
+        b.playersSum = in.readLong();
+        if (in.readBoolean()) {
+            b.latency = LatencySketch.readFrom(in);
+        }
+        return b;
+    }
+
+    /**
+     * 自动选择级别：能覆盖 from 且桶数不超过 MAX_AUTO_BUCKETS 的最细级别，都不满足时用 DAY
+     */
+    static Tier chooseTier(long from, long to, long now) {
+        for (Tier t : Tier.values()) {
+            boolean covers = now - from <= t.retentionMillis();
+            if (covers && (to - from) / t.widthMillis < MAX_AUTO_BUCKETS) {
+                return t;
+            }
+        }
+        return Tier.DAY;
+    }
+
+    /** 某个服务器在 [from, to] 内的桶（复制），没有数据时返回空列表 */
+    public List<Bucket> query(Main.HostPort hp, Tier tier, long from, long to) {
+        Series s = series.get(HistoryStore.key(hp));
+        return s == null ? new ArrayList<>() : s.range(tier, from, to);
+    }
+
+    /** 延迟分位数（毫秒），没有在线样本时返回 -1 */
+    static long quantile(Bucket b, double q) {
+        return b.latency == null ? -1 : b.latency.quantile(q);
+    }
+
+    /** 合并多个桶得到整个区间的汇总 */
+    static Bucket merge(List<Bucket> buckets, long start) {
+        Bucket total = new Bucket();
+        total.reset(start);
+        for (Bucket b : buckets) {
+            total.merge(b);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,370 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * ping 历史记录：只追加的内存映射分段文件
+ * - 每条记录固定 32 字节，按时间顺序写入，查询时二分定位起点后顺序扫描，不解析整个文件
+ * - 分段写满或跨度超过保留期的 1/SEGMENTS_PER_RETENTION 后新建下一段，超过保留期的分段整段删除，
+ *   写入时检查，流量很小时旧数据最多多保留一个分段的跨度；查询不返回超过保留期的记录
+ * - 主机名映射为 int id，保存在 hosts.txt（第 n 行的 id 为 n）
+ *
+ * 记录布局（大端）：
+ *  0 long  时间戳（毫秒），0 表示空位
+ *  8 int   主机 id
+ * 12 int   协议版本
+ * 16 int   在线人数
+ * 20 int   最大人数
+ * 24 int   延迟（毫秒），离线为 -1
+ * 28 byte  标志：1 在线，2 超时
+ */
+public class HistoryStore implements AutoCloseable {
+
+    static final int RECORD_SIZE = 32;
+    /** 文件头：魔数、版本、记录大小 */
+    static final int HEADER_SIZE = 32;
+    private static final int MAGIC = 0x4D435348; // "MCSH"
+    private static final int VERSION = 1;
+    /** 每段的记录数（4 MB） */
+    static final int RECORDS_PER_SEGMENT = 128 * 1024;
+    private static final long SEGMENT_BYTES = HEADER_SIZE + (long) RECORDS_PER_SEGMENT * RECORD_SIZE;
+    /** 保留期内大约保存的分段数：分段未写满时，跨度达到保留期的这一比例也新建下一段 */
+    static final int SEGMENTS_PER_RETENTION = 4;
+    private static final String SEGMENT_PREFIX = "history-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    static final byte FLAG_ONLINE = 1;
+    static final byte FLAG_TIMED_OUT = 2;
+
+    /** 一条历史记录（查询结果） */
+    static final class Point {
+        final long timestamp;
+        final boolean online;
+        final boolean timedOut;
+        final int protocol;
+        final int playersOnline;
+        final int maxPlayers;
+        final int ping;
+
+        Point(long timestamp, byte flags, int protocol, int playersOnline, int maxPlayers, int ping) {
+            this.timestamp = timestamp;
+            this.online = (flags & FLAG_ONLINE) != 0;
+            this.timedOut = (flags & FLAG_TIMED_OUT) != 0;
+            this.protocol = protocol;
+            this.playersOnline = playersOnline;
+            this.maxPlayers = maxPlayers;
+            this.ping = ping;
+        }
+    }
+
+    /** 一个分段：startMillis 为文件名中的时间（不晚于段内第一条记录） */
+    private static final class Segment {
+        final Path file;
+        final long startMillis;
+        final MappedByteBuffer buffer;
+        /** 已写入的记录数；写入线程持锁更新，读取线程只读到这里为止 */
+        volatile int count;
+
+        Segment(Path file, long startMillis, MappedByteBuffer buffer, int count) {
+            this.file = file;
+            this.startMillis = startMillis;
+            this.buffer = buffer;
+            this.count = count;
+        }
+
+        long timestamp(int index) {
+            return buffer.getLong(HEADER_SIZE + index * RECORD_SIZE);
+        }
+    }
+
+    private final Path dir;
+    private final long retentionMillis;
+    /** 一个分段最长的时间跨度 */
+    private final long segmentSpanMillis;
+    /** 最早的非当前分段到期的时间，到达后写入时清理（持有 writeLock 读写） */
+    private long nextPurgeAt = Long.MAX_VALUE;
+    private final Path hostsFile;
+    private final ConcurrentHashMap<String, Integer> hostIds = new ConcurrentHashMap<>();
+    /** id → 主机键（hosts.txt 的内容），只追加 */
+    private final List<String> hostKeys = new ArrayList<>();
+    /** hosts.txt 的行数，即下一个主机 id */
+    private int nextHostId;
+    /** 按开始时间排序的全部分段，最后一个是当前写入段；写入和清理时替换整个列表 */
+    private volatile List<Segment> segments;
+    private final Object writeLock = new Object();
+
+    /**
+     * 打开（或创建）历史目录，加载主机列表和已有分段，并清理过期分段
+     * @param retentionMillis 保留时间，超过的分段被删除
+     */
+    public HistoryStore(Path dir, long retentionMillis) throws IOException {
+        this.dir = dir;
+        this.retentionMillis = retentionMillis;
+        this.segmentSpanMillis = Math.max(1, retentionMillis / SEGMENTS_PER_RETENTION);
+        this.hostsFile = dir.resolve("hosts.txt");
+        Files.createDirectories(dir);
+
+        if (Files.exists(hostsFile)) {
+            List<String> lines = Files.readAllLines(hostsFile, StandardCharsets.UTF_8);
+            for (int i = 0; i < lines.size(); i++) {
+                hostIds.putIfAbsent(lines.get(i), i);
+            }
+            hostKeys.addAll(lines);
+            nextHostId = lines.size();
+        }
+
+        List<Segment> loaded = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files.sorted()::iterator) {
+                long start = segmentStart(file);
+                if (start >= 0) {
+                    loaded.add(open(file, start));
+                }
+            }
+        }
+        loaded.sort((a, b) -> Long.compare(a.startMillis, b.startMillis));
+        if (loaded.isEmpty() || loaded.get(loaded.size() - 1).count >= RECORDS_PER_SEGMENT) {
+            loaded.add(create(System.currentTimeMillis()));
+        }
+        segments = List.copyOf(loaded);
+        purgeExpired();
+    }
+
+    /** 记录一次 ping 的结果 */
+    public void record(Main.HostPort hp, ServerResult result) {
+        PingStatus status = result.status;
+        byte flags = (byte) ((status.online ? FLAG_ONLINE : 0) | (status.timedOut ? FLAG_TIMED_OUT : 0));
+        int id = hostId(key(hp));
+        synchronized (writeLock) {
+            long now = System.currentTimeMillis();
+            Segment seg = segments.get(segments.size() - 1);
+            if (seg.count >= RECORDS_PER_SEGMENT || now - seg.startMillis >= segmentSpanMillis) {
+                seg = rollover();
+            } else if (now >= nextPurgeAt) {
+                purgeExpired();
+            }
+            int offset = HEADER_SIZE + seg.count * RECORD_SIZE;
+            MappedByteBuffer buf = seg.buffer;
+            // 时间戳在锁内取，保证段内按时间有序
+            buf.putLong(offset, Math.max(now, lastTimestamp(seg)));
+            buf.putInt(offset + 8, id);
+            buf.putInt(offset + 12, status.protocol);
+            buf.putInt(offset + 16, status.playersOnline);
+            buf.putInt(offset + 20, status.maxPlayers);
+            buf.putInt(offset + 24, status.online ? (int) Math.min(status.ping, Integer.MAX_VALUE) : -1);
+            buf.put(offset + 28, flags);
+            seg.count = seg.count + 1; // volatile 写：之后的读取线程能看到完整记录
+        }
+    }
+
+    /**
+     * 读取某个服务器在 [from, to] 内的记录（按时间顺序），早于保留期的记录即使还没删除也不返回
+     * @param limit 最多返回的条数
+     */
+    public List<Point> query(Main.HostPort hp, long from, long to, int limit) {
+        from = Math.max(from, System.currentTimeMillis() - retentionMillis);
+        List<Point> points = new ArrayList<>();
+        Integer id = hostIds.get(key(hp));
+        if (id == null) return points;
+
+        List<Segment> snapshot = segments;
+        for (int s = 0; s < snapshot.size() && points.size() < limit; s++) {
+            Segment seg = snapshot.get(s);
+            // 下一段的开始时间是本段内容的上界
+            if (seg.startMillis > to) break;
+            if (s + 1 < snapshot.size() && snapshot.get(s + 1).startMillis < from) continue;
+
+            int count = seg.count;
+            MappedByteBuffer buf = seg.buffer;
+            for (int i = lowerBound(seg, count, from); i < count && points.size() < limit; i++) {
+                int offset = HEADER_SIZE + i * RECORD_SIZE;
+                long ts = buf.getLong(offset);
+                if (ts > to) break;
+                if (buf.getInt(offset + 8) != id) continue;
+                points.add(new Point(ts, buf.get(offset + 28), buf.getInt(offset + 12),
+                        buf.getInt(offset + 16), buf.getInt(offset + 20), buf.getInt(offset + 24)));
+            }
+        }
+        return points;
+    }
+
+    /**
+     * 按时间顺序遍历 from 之后的全部记录（启动时重建汇总用）
+     * @param consumer 接收主机键和记录
+     */
+    public void replay(long from, BiConsumer<String, Point> consumer) {
+        List<String> keys;
+        synchronized (hostIds) {
+            keys = List.copyOf(hostKeys);
+        }
+        List<Segment> snapshot = segments;
+        for (int s = 0; s < snapshot.size(); s++) {
+            Segment seg = snapshot.get(s);
+            if (s + 1 < snapshot.size() && snapshot.get(s + 1).startMillis < from) continue;
+
+            int count = seg.count;
+            MappedByteBuffer buf = seg.buffer;
+            for (int i = lowerBound(seg, count, from); i < count; i++) {
+                int offset = HEADER_SIZE + i * RECORD_SIZE;
+                int id = buf.getInt(offset + 8);
+                if (id < 0 || id >= keys.size()) continue; // 记录写入后才登记的主机
+                consumer.accept(keys.get(id), new Point(buf.getLong(offset), buf.get(offset + 28),
+                        buf.getInt(offset + 12), buf.getInt(offset + 16), buf.getInt(offset + 20), buf.getInt(offset + 24)));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (writeLock) {
+            segments.get(segments.size() - 1).buffer.force();
+        }
+    }
+
+    // === 内部 ===
+
+    /** 记录的主机键：与 HostPort.equals 一致，主机名不区分大小写 */
+    static String key(Main.HostPort hp) {
+        return hp.host.toLowerCase(Locale.ROOT) + ":" + hp.port;
+    }
+
+    private int hostId(String key) {
+        Integer id = hostIds.get(key);
+        if (id != null) return id;
+        synchronized (hostIds) {
+            id = hostIds.get(key);
+            if (id != null) return id;
+            try {
+                Files.writeString(hostsFile, key + "\n", StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            id = nextHostId++;
+            hostKeys.add(key);
+            hostIds.put(key, id);
+            return id;
+        }
+    }
+
+    private static long lastTimestamp(Segment seg) {
+        return seg.count == 0 ? 0 : seg.timestamp(seg.count - 1);
+    }
+
+    /** 第一条时间戳 >= from 的记录下标 */
+    private static int lowerBound(Segment seg, int count, long from) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (seg.timestamp(mid) < from) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** 当前段已满或跨度已到：刷盘，新建下一段，顺便清理过期分段（持有 writeLock） */
+    private Segment rollover() {
+        Segment full = segments.get(segments.size() - 1);
+        full.buffer.force();
+        Segment next;
+        try {
+            // 文件名不能与上一段相同
+            next = create(Math.max(System.currentTimeMillis(), Math.max(lastTimestamp(full), full.startMillis + 1)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<Segment> updated = new ArrayList<>(segments);
+        updated.add(next);
+        segments = List.copyOf(updated);
+        purgeExpired();
+        return next;
+    }
+
+    /** 删除内容全部早于保留期的分段（以下一段的开始时间判断），当前写入段永远保留（持有 writeLock 或在构造时调用） */
+    private void purgeExpired() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        List<Segment> current = segments;
+        int drop = 0;
+        while (drop + 1 < current.size() && current.get(drop + 1).startMillis < cutoff) {
+            drop++;
+        }
+        // 剩下的第一段在第二段的开始时间超出保留期后到期
+        nextPurgeAt = drop + 1 < current.size() ? current.get(drop + 1).startMillis + retentionMillis : Long.MAX_VALUE;
+        if (drop == 0) return;
+        segments = List.copyOf(current.subList(drop, current.size()));
+        for (int i = 0; i < drop; i++) {
+            try {
+                Files.deleteIfExists(current.get(i).file);
+            } catch (IOException e) {
+                // 删除失败（如文件被占用）下次再试
+            }
+        }
+    }
+
+    private Segment create(long startMillis) throws IOException {
+        Path file = dir.resolve(SEGMENT_PREFIX + startMillis + SEGMENT_SUFFIX);
+        MappedByteBuffer buf = map(file);
+        buf.putInt(0, MAGIC);
+        buf.putInt(4, VERSION);
+        buf.putInt(8, RECORD_SIZE);
+        return new Segment(file, startMillis, buf, 0);
+    }
+
+    private Segment open(Path file, long startMillis) throws IOException {
+        MappedByteBuffer buf = map(file);
+        if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION || buf.getInt(8) != RECORD_SIZE) {
+            throw new IOException("Not a history segment: " + file);
+        }
+        // 未写入的位置全是 0，二分找到第一条空记录即为已写入的数量
+        Segment probe = new Segment(file, startMillis, buf, 0);
+        int lo = 0;
+        int hi = RECORDS_PER_SEGMENT;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (probe.timestamp(mid) != 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        probe.count = lo;
+        return probe;
+    }
+
+    /** 映射整个分段文件（新文件预分配为固定大小） */
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+            buf.order(ByteOrder.BIG_ENDIAN);
+            return buf;
+        }
+    }
+
+    /** 从文件名取得分段开始时间，不是分段文件返回 -1 */
+    private static long segmentStart(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) return -1;
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * 直接编码为 UTF-8 字节的流式 JSON 写入器
+ * - 字符串一次遍历完成转义和编码，不产生中间 String
+ * - 逗号由写入器根据层级自动补上
+ * - 通过 borrow()/close() 复用缓冲区，避免每次响应都分配新的 byte[]
+ * 非线程安全，一个实例同一时间只能由一个线程使用
+ */
+public final class JsonWriter implements AutoCloseable {
+
+    /** 池中最多保留的写入器数量 */
+    private static final int POOL_SIZE = 64;
+    /** 超过该大小的缓冲区用完后直接丢弃，不放回池中 */
+    private static final int MAX_POOLED_BYTES = 64 * 1024;
+    private static final ArrayBlockingQueue<JsonWriter> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private byte[] buf = new byte[512];
+    private int size;
+    /** 当前嵌套深度，以及每一层是否已经写过元素（按位记录，最多 63 层） */
+    private int depth;
+    private long hasElement;
+    /** 刚写完字段名，下一个值前不需要逗号 */
+    private boolean afterName;
+
+    /** 从池中取出一个空的写入器，用完后调用 close() 归还 */
+    public static JsonWriter borrow() {
+        JsonWriter w = POOL.poll();
+        return w != null ? w : new JsonWriter();
+    }
+
+    /** 清空内容并归还到池中 */
+    @Override
+    public void close() {
+        reset();
+        if (buf.length <= MAX_POOLED_BYTES) {
+            POOL.offer(this);
+        }
+    }
+
+    public void reset() {
+        size = 0;
+        depth = 0;
+        hasElement = 0;
+        afterName = false;
+    }
+
+    public JsonWriter beginObject() {
+        beforeValue();
+        writeByte('{');
+        enter();
+        return this;
+    }
+
+    public JsonWriter endObject() {
+        depth--;
+        writeByte('}');
+        return this;
+    }
+
+    public JsonWriter beginArray() {
+        beforeValue();
+        writeByte('[');
+        enter();
+        return this;
+    }
+
+    public JsonWriter endArray() {
+        depth--;
+        writeByte(']');
+        return this;
+    }
+
+    public JsonWriter name(String name) {
+        beforeValue();
+        writeString(name);
+        writeByte(':');
+        afterName = true;
+        return this;
+    }
+
+    /** 字符串值，null 写为 JSON null */
+    public JsonWriter value(String value) {
+        beforeValue();
+        if (value == null) {
+            writeAscii("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    public JsonWriter value(long value) {
+        beforeValue();
+        if (value < 0) {
+            writeByte('-');
+            if (value == Long.MIN_VALUE) {
+                writeAscii("9223372036854775808");
+                return this;
+            }
+            value = -value;
+        }
+        // 先计算位数，再从低位往高位填
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) digits++;
+        ensure(digits);
+        for (int i = size + digits - 1; i >= size; i--) {
+            buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size += digits;
+        return this;
+    }
+
+    public JsonWriter value(boolean value) {
+        beforeValue();
+        writeAscii(value ? "true" : "false");
+        return this;
+    }
+
+    /** 已经是合法 JSON 的值（对象、数组等），原样写入 */
+    public JsonWriter rawValue(String json) {
+        beforeValue();
+        writeUtf8(json);
+        return this;
+    }
+
+    /** 已编码为 UTF-8 的 JSON 值，原样写入 */
+    public JsonWriter rawValue(byte[] json) {
+        beforeValue();
+        writeBytes(json, 0, json.length);
+        return this;
+    }
+
+    /**
+     * 把另一个已编码 JSON 对象的全部字段并入当前对象
+     * 例如在 beginObject().name("address").value(a) 之后并入 {"host":...} 得到 {"address":a,"host":...}
+     */
+    public JsonWriter rawFields(byte[] object) {
+        if (object.length <= 2) return this; // {}
+        beforeValue();
+        writeBytes(object, 1, object.length - 2);
+        return this;
+    }
+
+    /** JSON 结构之外的原始文本（如 SSE 的 "data: " 前缀），按 UTF-8 写入 */
+    public JsonWriter raw(String text) {
+        writeUtf8(text);
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, size);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, size);
+    }
+
+    // === 内部 ===
+
+    private void enter() {
+        depth++;
+        hasElement &= ~(1L << depth);
+    }
+
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            long bit = 1L << depth;
+            if ((hasElement & bit) != 0) {
+                writeByte(',');
+            } else {
+                hasElement |= bit;
+            }
+        }
+    }
+
+    /** 带引号的 JSON 字符串：转义与 UTF-8 编码一次完成 */
+    private void writeString(String s) {
+        int len = s.length();
+        ensure(len + 2);
+        buf[size++] = '"';
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    if (size == buf.length) grow(1);
+                    buf[size++] = (byte) c;
+                } else {
+                    writeEscape(c);
+                }
+            } else {
+                i = writeNonAscii(s, i, c);
+            }
+        }
+        writeByte('"');
+    }
+
+    private void writeEscape(char c) {
+        ensure(6);
+        buf[size++] = '\\';
+        switch (c) {
+            case '"' -> buf[size++] = '"';
+            case '\\' -> buf[size++] = '\\';
+            case '\n' -> buf[size++] = 'n';
+            case '\r' -> buf[size++] = 'r';
+            case '\t' -> buf[size++] = 't';
+            case '\b' -> buf[size++] = 'b';
+            case '\f' -> buf[size++] = 'f';
+            default -> {
+                buf[size++] = 'u';
+                buf[size++] = '0';
+                buf[size++] = '0';
+                buf[size++] = HEX[c >> 4];
+                buf[size++] = HEX[c & 0xF];
+            }
+        }
+    }
+
+    /** 不转义，直接编码为 UTF-8 */
+    private void writeUtf8(String s) {
+        int len = s.length();
+        ensure(len);
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (size == buf.length) grow(1);
+                buf[size++] = (byte) c;
+            } else {
+                i = writeNonAscii(s, i, c);
+            }
+        }
+    }
+
+    /** 编码一个非 ASCII 字符（含代理对），返回最后消费的下标；孤立的代理字符与 String.getBytes 一样写为 '?' */
+    private int writeNonAscii(String s, int i, char c) {
+        ensure(4);
+        if (c < 0x800) {
+            buf[size++] = (byte) (0xC0 | (c >> 6));
+            buf[size++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, s.charAt(++i));
+            buf[size++] = (byte) (0xF0 | (cp >> 18));
+            buf[size++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+            buf[size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+            buf[size++] = (byte) (0x80 | (cp & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+            buf[size++] = '?';
+        } else {
+            buf[size++] = (byte) (0xE0 | (c >> 12));
+            buf[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buf[size++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return i;
+    }
+
+    private void writeAscii(String s) {
+        int len = s.length();
+        ensure(len);
+        for (int i = 0; i < len; i++) {
+            buf[size++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void writeByte(char c) {
+        if (size == buf.length) grow(1);
+        buf[size++] = (byte) c;
+    }
+
+    private void writeBytes(byte[] bytes, int off, int len) {
+        ensure(len);
+        System.arraycopy(bytes, off, buf, size, len);
+        size += len;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buf.length) grow(extra);
+    }
+
+    private void grow(int extra) {
+        buf = Arrays.copyOf(buf, Math.max(buf.length << 1, size + extra));
+    }
+}
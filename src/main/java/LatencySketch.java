@@ -0,0 +1,112 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 可合并的延迟分布（HDR 风格的对数线性桶）
+ * - 0~15ms 每毫秒一个桶，之后每个 2 的幂区间分 4 个桶，相对误差不超过 12.5%
+ * - 共 64 个桶，上限约 65 秒，超出的计入最后一个桶
+ * - 合并就是逐桶相加，因此分钟 → 小时 → 天的汇总不损失精度
+ * - 计数数组只增长到出现过的最大桶：延迟集中在几十毫秒的服务器只占二三十个 int
+ */
+final class LatencySketch {
+
+    private static final int LINEAR = 16;
+    private static final int SUB_BUCKETS = 4;
+    static final int BUCKETS = 64;
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[] counts = EMPTY;
+    private long total;
+
+    void add(long millis) {
+        int i = index(millis);
+        ensureLength(i + 1);
+        counts[i]++;
+        total++;
+    }
+
+    void merge(LatencySketch other) {
+        ensureLength(other.counts.length);
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+    }
+
+    private void ensureLength(int length) {
+        if (length > counts.length) {
+            counts = Arrays.copyOf(counts, length);
+        }
+    }
+
+    /** 写入计数（桶数 + 各桶计数），总数由计数相加得到 */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeByte(counts.length);
+        for (int c : counts) {
+            out.writeInt(c);
+        }
+    }
+
+    static LatencySketch readFrom(DataInput in) throws IOException {
+        int length = in.readUnsignedByte();
+        if (length > BUCKETS) throw new IOException("Bad sketch length: " + length);
+        LatencySketch sketch = new LatencySketch();
+        sketch.counts = new int[length];
+        for (int i = 0; i < length; i++) {
+            int c = in.readInt();
+            if (c < 0) throw new IOException("Bad sketch count: " + c);
+            sketch.counts[i] = c;
+            sketch.total += c;
+        }
+        return sketch;
+    }
+
+    void clear() {
+        Arrays.fill(counts, 0);
+        total = 0;
+    }
+
+    long count() {
+        return total;
+    }
+
+    /**
+     * 分位数（取桶的中点）
+     * @param q 0~1
+     * @return 毫秒；没有数据时返回 -1
+     */
+    long quantile(double q) {
+        if (total == 0) return -1;
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return (lowerBound(i) + upperBound(i)) / 2;
+            }
+        }
+        return upperBound(counts.length - 1);
+    }
+
+    static int index(long millis) {
+        if (millis < LINEAR) return (int) Math.max(0, millis);
+        int octave = 63 - Long.numberOfLeadingZeros(millis); // >= 4
+        int sub = (int) (millis >> (octave - 2)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, LINEAR + (octave - 4) * SUB_BUCKETS + sub);
+    }
+
+    static long lowerBound(int index) {
+        if (index < LINEAR) return index;
+        int octave = 4 + (index - LINEAR) / SUB_BUCKETS;
+        int sub = (index - LINEAR) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (octave - 2);
+    }
+
+    static long upperBound(int index) {
+        if (index < LINEAR) return index;
+        return lowerBound(index) + (1L << (4 + (index - LINEAR) / SUB_BUCKETS - 2)) - 1;
+    }
+}
@@ -0,0 +1,58 @@
+import low.citory.MinecraftPinger;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 包装 MinecraftPinger 的阻塞实现：每次 ping 占用一个（虚拟）线程
+ * MinecraftPinger 内部的连接/读取超时固定为 5 秒，这里只能保证总超时：
+ * 到期后中断该虚拟线程（虚拟线程上的 Socket 读写可被中断）
+ */
+public class LegacyPinger implements Pinger {
+
+    private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Override
+    public CompletableFuture<PingStatus> pingAsync(String host, int port, Deadline deadline) {
+        return CompletableFuture.supplyAsync(() -> ping(host, port, deadline), executor);
+    }
+
+    @Override
+    public PingStatus ping(String host, int port, Deadline deadline) {
+        Future<PingStatus> task = executor.submit(() -> pingBlocking(host, port));
+        try {
+            return task.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            task.cancel(true);
+            return PingStatus.timeout("Timed out");
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted");
+        } catch (ExecutionException e) {
+            return PingStatus.offline("Connection failed: " + e.getCause().getMessage());
+        }
+    }
+
+    private static PingStatus pingBlocking(String host, int port) {
+        MinecraftPinger pinger = new MinecraftPinger(host, port);
+        if (!pinger.isOnline()) {
+            return PingStatus.offline("Server is offline or unreachable");
+        }
+        return new PingStatus(
+                pinger.getVersion(),
+                pinger.getProtocolVersion(),
+                pinger.getPlayersOnline(),
+                pinger.getMaxPlayers(),
+                pinger.getServerPing(),
+                pinger.getRawMotd(),
+                null // MinecraftPinger 不提供图标
+        );
+    }
+}
@@ -1,18 +1,29 @@
+import com.sun.net.httpserver.Filter;
 import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
-import low.citory.MinecraftPinger;
 
-import java.awt.*;
+import java.awt.GraphicsEnvironment;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.PrintStream;
 import java.net.InetSocketAddress;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
-
-import org.xbill.DNS.*;
-import org.xbill.DNS.Record;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
 
 public class Main {
     public static final String VERSION = "1.3";
@@ -26,9 +37,19 @@ public class Main {
         }
     }
 
-    public static ResourceBundle i18n = ResourceBundle.getBundle(
-            "i18n", getLocale(), new UTF8ResourceBundleControl()
-    );
+    /**
+     * 界面文字，第一次使用时才加载
+     * 转发给守护进程、-c api 成功输出等路径不需要，省去启动时的资源查找和解析
+     */
+    public static ResourceBundle i18n() {
+        return I18nHolder.BUNDLE;
+    }
+
+    private static final class I18nHolder {
+        static final ResourceBundle BUNDLE = ResourceBundle.getBundle(
+                "i18n", getLocale(), new UTF8ResourceBundleControl()
+        );
+    }
 
     static class HostPort {
         final String host;
@@ -38,6 +59,24 @@ public class Main {
             this.host = host;
             this.port = port;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof HostPort)) return false;
+            HostPort other = (HostPort) o;
+            return port == other.port && host.equalsIgnoreCase(other.host);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * host.toLowerCase(Locale.ROOT).hashCode() + port;
+        }
+
+        @Override
+        public String toString() {
+            return host.indexOf(':') >= 0 ? "[" + host + "]:" + port : host + ":" + port;
+        }
     }
 
     /**
@@ -59,84 +98,86 @@ public class Main {
      * - 域名无端口时自动查询 SRV 记录（_minecraft._tcp.host）
      */
     public static HostPort parseHostPort(String address) throws IllegalArgumentException {
-        if (address == null || address.isEmpty()) {
-            throw new IllegalArgumentException(i18n.getString("app.error.serverEmpty"));
-        }
-
-        String host;
-        int port = -1; // -1 表示尚未确定端口
+        return parseHostPort(address, Deadline.defaults());
+    }
 
-        // === 1. IPv6: [开头
-        if (address.startsWith("[")) {
-            int bracketEnd = address.indexOf(']');
-            if (bracketEnd == -1) {
-                throw new IllegalArgumentException(i18n.getString("ipv6.syntax"));
+    /**
+     * @param deadline SRV 查询的时间预算，超时视为没有 SRV 记录
+     */
+    public static HostPort parseHostPort(String address, Deadline deadline) throws IllegalArgumentException {
+        long start = System.nanoTime();
+        try {
+            if (address == null || address.isEmpty()) {
+                throw new IllegalArgumentException(i18n().getString("app.error.serverEmpty"));
             }
 
-            host = address.substring(1, bracketEnd);
+            String host;
+            int port = -1; // -1 表示尚未确定端口
 
-            // 检查是否有 :port
-            if (bracketEnd + 1 < address.length() && address.charAt(bracketEnd + 1) == ':') {
-                String portStr = address.substring(bracketEnd + 2);
-                try {
-                    port = Integer.parseInt(portStr);
+            // === 1. IPv6: [开头
+            if (address.startsWith("[")) {
+                int bracketEnd = address.indexOf(']');
+                if (bracketEnd == -1) {
+                    throw new IllegalArgumentException(i18n().getString("ipv6.syntax"));
+                }
+
+                host = address.substring(1, bracketEnd);
+
+                // 检查是否有 :port
+                if (bracketEnd + 1 < address.length() && address.charAt(bracketEnd + 1) == ':') {
+                    port = Addresses.parsePort(address, bracketEnd + 2, address.length());
+                    if (port < 0) {
+                        throw new IllegalArgumentException(i18n().getString("port.invalid") + address.substring(bracketEnd + 2));
+                    }
                     if (port < 1 || port > 65535) {
-                        throw new IllegalArgumentException(i18n.getString("port.inRange"));
+                        throw new IllegalArgumentException(i18n().getString("port.inRange"));
                     }
                     return new HostPort(host, port); // ✅ 有端口，直接返回
-                } catch (NumberFormatException e) {
-                    throw new IllegalArgumentException(i18n.getString("port.invalid") + portStr);
                 }
+                // IPv6 无端口 → 进入 SRV 或默认流程
             }
-            // IPv6 无端口 → 进入 SRV 或默认流程
-        }
-        // === 2. 普通 host 或 host:port
-        else {
-            int lastColon = address.lastIndexOf(':');
-            // 避免把 IPv4 的 : 当成端口分隔符（如 192.168.1.1:25565 是合法的）
-            if (lastColon > 0 && lastColon > address.lastIndexOf('.') + 1) {
-                String maybePort = address.substring(lastColon + 1);
-                if (maybePort.matches("\\d+")) {
-                    try {
-                        port = Integer.parseInt(maybePort);
-                        if (port < 1 || port > 65535) {
-                            throw new IllegalArgumentException(i18n.getString("port.inRange"));
+            // === 2. 普通 host 或 host:port
+            else {
+                int lastColon = address.lastIndexOf(':');
+                // 多个冒号是不带方括号的 IPv6（如 2001:db8::1），整体作为 host，不拆端口
+                boolean bareIPv6 = lastColon > 0 && address.indexOf(':') != lastColon;
+                // 避免把 IPv4 的 : 当成端口分隔符（如 192.168.1.1:25565 是合法的）
+                if (!bareIPv6 && lastColon > 0 && lastColon > address.lastIndexOf('.') + 1) {
+                    int maybePort = Addresses.parsePort(address, lastColon + 1, address.length());
+                    if (maybePort >= 0) {
+                        if (maybePort < 1 || maybePort > 65535) {
+                            throw new IllegalArgumentException(i18n().getString("port.inRange"));
                         }
                         host = address.substring(0, lastColon);
-                        return new HostPort(host, port); // ✅ 有端口，直接返回
-                    } catch (NumberFormatException e) {
-                        throw new IllegalArgumentException(i18n.getString("port.invalid"));
+                        return new HostPort(host, maybePort); // ✅ 有端口，直接返回
                     }
                 }
+                // 无端口或非法端口 → 使用 host 全部
+                host = address;
             }
-            // 无端口或非法端口 → 使用 host 全部
-            host = address;
-        }
 
-        // === 3. 到这里说明：没有提供端口，尝试 SRV 查询
-        if (port == -1) {
-            HostPort srvResult = lookupMinecraftSRV(host);
-            if (srvResult != null) {
-                return srvResult; // ✅ 使用 SRV 的 host 和 port
+            // === 3. 到这里说明：没有提供端口，尝试 SRV 查询
+            if (port == -1) {
+                HostPort srvResult = lookupMinecraftSRV(host, deadline);
+                if (srvResult != null) {
+                    return srvResult; // ✅ 使用 SRV 的 host 和 port
+                }
             }
-        }
 
-        // === 4. 最终 fallback：默认端口 25565
-        return new HostPort(host, 25565);
+            // === 4. 最终 fallback：默认端口 25565
+            return new HostPort(host, 25565);
+        } finally {
+            Metrics.PARSE.observeSince(start);
+        }
     }
 
-    private static final String[] SRV_PATTERNS = {
-            "_minecraft._tcp.%s",  // 标准 Minecraft SRV
-            "_mc._tcp.%s",         // 常见别名
-            "_game._tcp.%s"        // 可选扩展
-    };
-
     /**
      * 查询 Minecraft SRV 记录
      * @param domain 域名
+     * @param deadline 查询的时间预算
      * @return 成功则返回 HostPort，否则 null
      */
-    static HostPort lookupMinecraftSRV(String domain) {
+    static HostPort lookupMinecraftSRV(String domain, Deadline deadline) {
         // 本地地址不查 SRV
         if (domain.equals("localhost") ||
                 domain.equals("127.0.0.1") ||
@@ -149,43 +190,27 @@ public class Main {
             return null;
         }
 
-        for (String pattern : SRV_PATTERNS) {
-            String srvName = String.format(pattern, domain);
-            try {
-                Lookup lookup = new Lookup(srvName, Type.SRV);
-                lookup.setResolver(new SimpleResolver());
-                lookup.setCache(null);
-
-                Record[] records = lookup.run();
-                if (records != null && records.length > 0) {
-                    SRVRecord srv = (SRVRecord) records[0];
-                    String target = srv.getTarget().toString().replaceAll("\\.$", "");
-                    int port = srv.getPort();
-                    return new HostPort(target, port);
-                }
-            } catch (Exception e) {
-                // 忽略，尝试下一个
-            }
-        }
-
-        return null;
+        // 并行查询各 SRV 前缀，结果（含查不到）带缓存
+        return SrvResolver.resolve(domain, deadline);
     }
 
     /**
-     * 检查是否为 IP 地址（避免对 IP 查 SRV）
+     * 检查是否为 IP 地址（避免对 IP 查 SRV），IPv6 包括 :: 压缩形式
      */
     static boolean isValidIP(String host) {
-        return host.matches("\\d+\\.\\d+\\.\\d+\\.\\d+") ||  // IPv4
-                host.matches("([0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4}") ||  // IPv6 简单匹配
-                host.equals("localhost");
+        return Addresses.isIpLiteral(host) || host.equals("localhost");
     }
 
     public static void main(String[] args) throws IOException {
+        // -c 且有守护进程在运行：直接交给守护进程执行，本进程不再加载其余的类
+        if (args.length > 0 && ("-c".equals(args[0]) || "--cli".equals(args[0])) && DaemonClient.forward(args)) {
+            return;
+        }
+
         String mode = null;
         int index = 0;
-        GUI gui = new GUI();
 
-        // 如果没有参数，直接进入GUI
+        // 如果没有参数，直接进入GUI（Swing / AWT / FlatLaf 只在这里加载，其他模式不加载）
         if (args.length == 0) {
             if (GraphicsEnvironment.isHeadless()) {
                 printUsage();
@@ -202,47 +227,43 @@ public class Main {
                 return;
             case "-v":
             case "--version":
-                System.out.println(i18n.getString("app.version") + VERSION + " " + i18n.getString("app.author") + AUTHOR);
+                System.out.println(i18n().getString("app.version") + VERSION + " " + i18n().getString("app.author") + AUTHOR);
                 return;
             case "-c":
             case "--cli":
                 if (mode != null) {
-                    System.err.println(i18n.getString("app.error.onlyOneMode"));
+                    System.err.println(i18n().getString("app.error.onlyOneMode"));
                     printUsage();
                     return;
                 }
                 mode = "cli";
-                index++;
-
-                // 检查是否有二级参数 "api"
-                boolean useJson = false;
-                if (index < args.length && "api".equalsIgnoreCase(args[index])) {
-                    useJson = true;
-                    index++;
-                }
-
-                // 必须还有一个参数：服务器地址（如 localhost:25565）
-                if (index >= args.length) {
-                    System.err.println(i18n.getString("app.error.needServerAddress"));
+                runCli(args, index + 1, System.in, System.out, System.err, null);
+                return;
+            case "-d":
+            case "--daemon":
+                if (mode != null) {
+                    System.err.println(i18n().getString("app.error.onlyOneMode"));
                     printUsage();
                     return;
                 }
+                mode = "daemon";
 
-                String address = args[index++];
-                HostPort hp;
+                // 守护进程选项与 server 模式相同，另有 --socket
+                Config daemonConfig;
                 try {
-                    hp = parseHostPort(address);
+                    daemonConfig = Config.parse(args, index + 1);
                 } catch (IllegalArgumentException e) {
-                    System.err.println(i18n.getString("app.error.addressAnalyzeFailed") + e.getMessage());
+                    System.err.println(e.getMessage());
+                    printUsage();
                     return;
                 }
-
-                runAsCli(hp.host, hp.port, useJson);
+                pinger = Pinger.create(daemonConfig.engine);
+                Daemon.run(daemonConfig);
                 return;
             case "-s":
             case "--server":
                 if (mode != null) {
-                    System.err.println(i18n.getString("app.error.onlyOneMode"));
+                    System.err.println(i18n().getString("app.error.onlyOneMode"));
                     printUsage();
                     return;
                 }
@@ -250,7 +271,7 @@ public class Main {
                 index++;
 
                 if (index >= args.length) {
-                    System.err.println(i18n.getString("app.error.needListenPort"));
+                    System.err.println(i18n().getString("app.error.needListenPort"));
                     printUsage();
                     return;
                 }
@@ -259,256 +280,1057 @@ public class Main {
                 try {
                     listenPort = Integer.parseInt(args[index++]);
                 } catch (NumberFormatException e) {
-                    System.err.println(i18n.getString("app.error.listenPortMustBeNumber"));
+                    System.err.println(i18n().getString("app.error.listenPortMustBeNumber"));
                     return;
                 }
 
-                runAsServer(listenPort);
-                System.out.println(i18n.getString("app.quitServer"));
+                // 端口之后的 --xxx 选项
+                Config config;
+                try {
+                    config = Config.parse(args, index);
+                } catch (IllegalArgumentException e) {
+                    System.err.println(e.getMessage());
+                    printUsage();
+                    return;
+                }
+
+                pinger = Pinger.create(config.engine);
+                runAsServer(listenPort, config);
+                System.out.println(i18n().getString("app.quitServer"));
                 try {
                     Thread.sleep(Long.MAX_VALUE);
                 } catch (InterruptedException e) {
-                    System.out.println(i18n.getString("app.serverStopped"));
+                    System.out.println(i18n().getString("app.serverStopped"));
                 }
                 return; // Server 模式执行完退出
 
             default:
-                System.err.println(i18n.getString("app.unknownParameter") + arg);
+                System.err.println(i18n().getString("app.unknownParameter") + arg);
                 printUsage();
         }
     }
 
     static void printUsage(){
-        System.out.println(i18n.getString("app.author") + AUTHOR);
-        System.out.println(i18n.getString("app.usage"));
-        System.out.println(i18n.getString("usage.version"));
-        System.out.println(i18n.getString("usage.versionCmd"));
-        System.out.println(i18n.getString("usage.cli"));
-        System.out.println(i18n.getString("usage.cliCmd"));
-        System.out.println(i18n.getString("usage.server"));
-        System.out.println(i18n.getString("usage.serverCmd"));
+        printUsage(System.out);
+    }
+
+    static void printUsage(PrintStream out) {
+        out.println(i18n().getString("app.author") + AUTHOR);
+        out.println(i18n().getString("app.usage"));
+        out.println(i18n().getString("usage.version"));
+        out.println(i18n().getString("usage.versionCmd"));
+        out.println(i18n().getString("usage.cli"));
+        out.println(i18n().getString("usage.cliCmd"));
+        out.println(i18n().getString("usage.cliBatch"));
+        out.println(i18n().getString("usage.server"));
+        out.println(i18n().getString("usage.serverCmd"));
+        out.println(i18n().getString("usage.serverOptions"));
+        out.println(i18n().getString("usage.daemon"));
+        out.println(i18n().getString("usage.daemonCmd"));
     }
 
     /**
-     * 简单判断字符串是否为合法 JSON（仅用于判断是否可以作为对象插入）
-     * 注意：非常简化的实现，仅检查是否以 { 开头并能匹配括号
+     * -c 之后的部分：[api] 地址 [--选项]，本进程执行和守护进程代为执行共用
+     * @param in "-" 时读取地址列表的输入
+     * @param query null 表示在本进程中按 --engine 直接 ping；守护进程传入经由其 PingService 的查询
      */
-    private static boolean isValidJson(String str) {
-        if (str == null || str.trim().isEmpty()) {
-            return false;
+    static void runCli(String[] args, int index, InputStream in, PrintStream out, PrintStream err, BatchRunner.Query query) {
+        // 检查是否有二级参数 "api"
+        boolean useJson = false;
+        if (index < args.length && "api".equalsIgnoreCase(args[index])) {
+            useJson = true;
+            index++;
         }
-        str = str.trim();
 
-        // 必须以 { 或 [ 开头
-        if (!str.startsWith("{") && !str.startsWith("[")) {
-            return false;
+        // 必须还有一个参数：服务器地址（如 localhost:25565）
+        if (index >= args.length) {
+            err.println(i18n().getString("app.error.needServerAddress"));
+            printUsage(out);
+            return;
         }
 
-        // 简单括号匹配
-        int balance = 0;
-        boolean inString = false;
-        char quote = 0;
+        String address = args[index++];
 
-        for (int i = 0; i < str.length(); i++) {
-            char c = str.charAt(i);
+        // 地址之后的 --xxx 选项（如 --parallel）
+        Config cliConfig;
+        try {
+            cliConfig = Config.parse(args, index);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            printUsage(out);
+            return;
+        }
 
-            if (c == '"' || c == '\'') {
-                if (!inString) {
-                    inString = true;
-                    quote = c;
-                } else if (c == quote) {
-                    if (i == 0 || str.charAt(i - 1) != '\\') {
-                        inString = false;
-                    }
-                }
-            }
+        if (query == null) {
+            pinger = Pinger.create(cliConfig.engine);
+            pinger.warmUp();
+            query = (hp, deadline) -> queryServerResult(hp.host, hp.port, deadline);
+        }
 
-            if (!inString) {
-                if (c == '{' || c == '[') balance++;
-                if (c == '}' || c == ']') balance--;
+        // "-" 从标准输入读取地址列表，"@文件" 从文件读取
+        if ("-".equals(address) || address.startsWith("@")) {
+            List<String> addresses;
+            try {
+                addresses = "-".equals(address)
+                        ? BatchRunner.readLines(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)))
+                        : BatchRunner.readLines(Files.newBufferedReader(Path.of(address.substring(1)), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                err.println(i18n().getString("app.error.readAddressList") + e.getMessage());
+                return;
             }
+            runBatchCli(addresses, useJson, cliConfig, query, out);
+            return;
         }
 
-        return balance == 0;
+        // 一个总超时覆盖 SRV 查询和 ping
+        Deadline deadline = cliConfig.newDeadline();
+        HostPort hp;
+        try {
+            hp = parseHostPort(address, deadline);
+        } catch (IllegalArgumentException e) {
+            err.println(i18n().getString("app.error.addressAnalyzeFailed") + e.getMessage());
+            return;
+        }
+
+        runAsCli(hp, useJson, deadline, query, out);
     }
 
-    public static class ServerResult {
-        public final String text;
-        public final String json;
+    /** ping 实现，默认使用非阻塞的 NioPinger，可通过 --engine legacy 切换回 MinecraftPinger */
+    static volatile Pinger pinger;
 
-        public ServerResult(String text, String json) {
-            this.text = text;
-            this.json = json;
+    static Pinger getPinger() {
+        Pinger p = pinger;
+        if (p == null) {
+            pinger = p = Pinger.create("nio");
         }
+        return p;
     }
 
     public static ServerResult queryServerResult(String serverAddress, int serverPort) {
-        MinecraftPinger pinger = new MinecraftPinger(serverAddress, serverPort);
-
-        if (!pinger.isOnline()) {
-            // 离线：生成 text 和 json
-            String text = i18n.getString("log.server") + serverAddress + ":" + serverPort + i18n.getString("log.offline");
-
-            String json = String.format(
-                    "{"
-                            + "\"host\":\"%s\","
-                            + "\"port\":%d,"
-                            + "\"online\":false,"
-                            + "\"error\":\"Server is offline or unreachable\""
-                            + "}",
-                    serverAddress, serverPort
-            );
-
-            return new ServerResult(text, json);
-        }
-
-        // 在线：准备数据
-        String version = pinger.getVersion();
-        int protocol = pinger.getProtocolVersion();
-        int playersOnline = pinger.getPlayersOnline();
-        int maxPlayers = pinger.getMaxPlayers();
-        long ping = pinger.getServerPing();
-        String rawMotd = pinger.getRawMotd();
-
-        // === 生成文本格式（text）===
-        String text = i18n.getString("result.version") + version + "\n"
-                + i18n.getString("result.protocol") + protocol + "\n"
-                + i18n.getString("result.players") + playersOnline + "/" + maxPlayers + "\n"
-                + i18n.getString("result.ping") + ping + "ms" + "\n"
-                + i18n.getString("result.motd") + pinger.getAnsiMotd() + "\n";
-
-        // === 生成 JSON 格式（json）===
-        String motdJson;
-        if (isValidJson(rawMotd)) {
-            motdJson = rawMotd; // 直接作为 JSON 对象插入
-        } else {
-            motdJson = "\"" + escapeJson(rawMotd) + "\""; // 作为字符串，需转义并加引号
-        }
-
-        String json = String.format(
-                "{"
-                        + "\"host\":\"%s\","
-                        + "\"port\":%d,"
-                        + "\"online\":true,"
-                        + "\"version\":\"%s\","
-                        + "\"protocol\":%d,"
-                        + "\"playersOnline\":%d,"
-                        + "\"maxPlayers\":%d,"
-                        + "\"ping\":%d,"
-                        + "\"motd\":%s"
-                        + "}",
-                serverAddress,
-                serverPort,
-                escapeJson(version),
-                protocol,
-                playersOnline,
-                maxPlayers,
-                ping,
-                motdJson
-        );
+        return queryServerResult(serverAddress, serverPort, Deadline.defaults());
+    }
 
-        // ✅ 返回封装好的结果
-        return new ServerResult(text, json);
+    public static ServerResult queryServerResult(String serverAddress, int serverPort, Deadline deadline) {
+        long start = System.nanoTime();
+        PingStatus status = getPinger().ping(serverAddress, serverPort, deadline);
+        Metrics.QUERY.observeSince(start);
+        Metrics.PINGS.increment(status.online ? "online" : status.timedOut ? "timeout" : "offline");
+        // text / JSON 在使用时才生成
+        return new ServerResult(serverAddress, serverPort, status);
     }
 
-    static void runAsCli(String serverAddress, int serverPort, boolean useJson) {
-        ServerResult result = queryServerResult(serverAddress, serverPort);
+    static void runAsCli(HostPort hp, boolean useJson, Deadline deadline, BatchRunner.Query query, PrintStream out) {
+        ServerResult result = query.query(hp, deadline);
         if (useJson) {
-            System.out.println(result.json);
+            out.println(result.json());
         } else {
-            System.out.print(result.text); // 注意：用 print 而不是 printf
+            out.print(result.text()); // 注意：用 print 而不是 printf
         }
     }
 
-    private static String escapeJson(String s) {
+    static void runBatchCli(List<String> addresses, boolean useJson, Config config, BatchRunner.Query query, PrintStream out) {
+        if (useJson && !config.ndjson) {
+            // JSON 数组需要全部完成后按输入顺序输出
+            ServerResult[] results = BatchRunner.runAll(addresses, config, query);
+            try (JsonWriter w = JsonWriter.borrow()) {
+                BatchRunner.writeJsonArray(w, addresses, results);
+                w.raw("\n");
+                synchronized (out) {
+                    w.writeTo(out);
+                    out.flush();
+                }
+            } catch (IOException ignored) {}
+            return;
+        }
+
+        // 文本 / NDJSON：完成一个输出一个
+        BatchRunner.run(addresses, config, query, (index, address, result) -> {
+            if (!useJson) {
+                synchronized (out) {
+                    out.print("=== " + address + " ===\n" + result.text());
+                    out.flush();
+                }
+                return;
+            }
+            try (JsonWriter w = JsonWriter.borrow()) {
+                BatchRunner.writeWithAddress(w, address, result);
+                w.raw("\n");
+                synchronized (out) {
+                    w.writeTo(out);
+                    out.flush();
+                }
+            } catch (IOException ignored) {}
+        });
+    }
+
+    /** 转义 JSON 字符串内容（一次遍历；无需转义时返回原字符串） */
+    static String escapeJson(String s) {
         if (s == null) return "";
-        return s.replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\r", "\\r")
-                .replace("\n", "\\n")
-                .replace("\t", "\\t");
+        int i = 0;
+        int len = s.length();
+        while (i < len) {
+            char c = s.charAt(i);
+            if (c < 0x20 || c == '"' || c == '\\') break;
+            i++;
+        }
+        if (i == len) return s;
+
+        StringBuilder sb = new StringBuilder(len + 16).append(s, 0, i);
+        for (; i < len; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                case '\b' -> sb.append("\\b");
+                case '\f' -> sb.append("\\f");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.toString();
     }
 
     // 简化响应发送方法
     private static void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
-        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        sendResponse(exchange, statusCode, response.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sendResponse(HttpExchange exchange, int statusCode, byte[] bytes) throws IOException {
         exchange.sendResponseHeaders(statusCode, bytes.length);
         try (OutputStream os = exchange.getResponseBody()) {
             os.write(bytes);
         }
     }
 
-    static void runAsServer(int listenPort) throws IOException {
-        System.out.println(i18n.getString("app.server.startListenOn") + listenPort);
+    /** 超过该大小且客户端支持时，JSON 响应使用 gzip 压缩 */
+    static final int GZIP_MIN_BYTES = 1024;
 
-        HttpServer server = HttpServer.create(new InetSocketAddress(listenPort), 0);
-        server.createContext("/api", exchange -> {
+    /**
+     * 直接把写入器缓冲区中的内容作为响应体发送，不再复制
+     * 较大的响应（批量结果、历史记录等）在客户端支持时边写边压缩，使用分块传输
+     */
+    private static void sendResponse(HttpExchange exchange, int statusCode, JsonWriter w) throws IOException {
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (w.size() < GZIP_MIN_BYTES || !acceptsGzip(exchange)) {
+            exchange.sendResponseHeaders(statusCode, w.size());
+            try (OutputStream os = exchange.getResponseBody()) {
+                w.writeTo(os);
+            }
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(statusCode, 0); // 0 → chunked
+        try (OutputStream os = new GZIPOutputStream(exchange.getResponseBody(), 8192)) {
+            w.writeTo(os);
+        }
+    }
+
+    private static boolean acceptsGzip(HttpExchange exchange) {
+        for (String value : exchange.getRequestHeaders().getOrDefault("Accept-Encoding", List.of())) {
+            for (String coding : value.split(",")) {
+                int semi = coding.indexOf(';');
+                String name = (semi < 0 ? coding : coding.substring(0, semi)).trim();
+                if (name.equalsIgnoreCase("gzip")) {
+                    // gzip;q=0 表示明确拒绝
+                    return semi < 0 || !isZeroQuality(coding, semi + 1);
+                }
+            }
+        }
+        return false;
+    }
+
+    /** coding 从 from 开始的参数是否为 q=0（q=0、q=0.、q=0.000，允许空白） */
+    static boolean isZeroQuality(String coding, int from) {
+        int end = coding.length();
+        int i = skipSpaces(coding, from, end);
+        if (i >= end || (coding.charAt(i) != 'q' && coding.charAt(i) != 'Q')) return false;
+        i = skipSpaces(coding, i + 1, end);
+        if (i >= end || coding.charAt(i) != '=') return false;
+        i = skipSpaces(coding, i + 1, end);
+        if (i >= end || coding.charAt(i) != '0') return false;
+        i++;
+        if (i < end && coding.charAt(i) == '.') {
+            i++;
+            while (i < end && coding.charAt(i) == '0') i++;
+        }
+        return skipSpaces(coding, i, end) == end;
+    }
+
+    private static int skipSpaces(String s, int from, int to) {
+        while (from < to && (s.charAt(from) == ' ' || s.charAt(from) == '\t')) from++;
+        return from;
+    }
+
+    /**
+     * 发送单个查询结果
+     * 在线结果带 ETag 和与结果缓存对齐的 Cache-Control，客户端带 If-None-Match 且内容未变时返回 304（无响应体）
+     */
+    private static void sendResult(HttpExchange exchange, int statusCode, ServerResult result, long ttlMillis) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        if (statusCode != 200) {
+            exchange.getResponseHeaders().set("Cache-Control", "no-store");
+            sendResponse(exchange, statusCode, result.jsonBytes());
+            return;
+        }
+
+        String etag = result.etag();
+        long remainingMillis = ttlMillis - (System.currentTimeMillis() - result.createdAt);
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Cache-Control", remainingMillis >= 1000
+                ? "max-age=" + remainingMillis / 1000 : "no-cache");
+        if (matchesEtag(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        sendResponse(exchange, statusCode, result.jsonBytes());
+    }
+
+    /** If-None-Match 是否包含该 ETag（弱比较：忽略 W/ 前缀） */
+    static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 根据请求参数创建超时预算，参数只能缩短服务器配置的超时
+     * @param params 查询参数，params[0] 是地址，其余为 key=value
+     * @throws IllegalArgumentException 参数非法
+     */
+    static Deadline requestDeadline(String[] params, Config config) throws IllegalArgumentException {
+        long connect = config.connectTimeoutMillis;
+        long read = config.readTimeoutMillis;
+        long total = config.timeoutMillis;
+        for (int i = 1; i < params.length; i++) {
+            int eq = params[i].indexOf('=');
+            String key = eq < 0 ? params[i] : params[i].substring(0, eq);
+            String value = eq < 0 ? "" : params[i].substring(eq + 1);
+            switch (key) {
+                case "timeout":
+                    total = Math.min(total, Config.parsePositive(key, value));
+                    break;
+                case "connectTimeout":
+                    connect = Math.min(connect, Config.parsePositive(key, value));
+                    break;
+                case "readTimeout":
+                    read = Math.min(read, Config.parsePositive(key, value));
+                    break;
+                default:
+                    // 忽略未知参数
+            }
+        }
+        return Deadline.of(connect, read, total);
+    }
+
+    /**
+     * 查询参数 name 的值（已解码），没有时返回 null；参数名必须完全相同
+     * @param start 从第几个参数开始查找（地址在第 0 个时传 1）
+     */
+    static String queryParam(String[] params, int start, String name) {
+        for (int i = start; i < params.length; i++) {
+            int eq = params[i].indexOf('=');
+            String key = eq < 0 ? params[i] : params[i].substring(0, eq);
+            if (key.equals(name)) {
+                return eq < 0 ? "" : URLDecoder.decode(params[i].substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    /** 请求体大小上限 */
+    private static final int MAX_BODY_BYTES = 1 << 20;
+
+    /**
+     * 读取批量请求的地址列表
+     * POST：请求体为 JSON 数组或每行一个地址；GET：查询参数为逗号分隔的地址
+     * @return 地址列表；请求不合法时已发送错误响应并返回 null
+     */
+    private static List<String> readBatchAddresses(HttpExchange exchange, boolean allowGet) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        String method = exchange.getRequestMethod();
+
+        List<String> addresses;
+        if ("POST".equals(method)) {
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readNBytes(MAX_BODY_BYTES + 1);
+            }
+            if (body.length > MAX_BODY_BYTES) {
+                sendResponse(exchange, 413, "{\"error\":\"Request body too large\"}");
+                return null;
+            }
             try {
-                // 只处理 GET 请求
-                if (!"GET".equals(exchange.getRequestMethod())) {
-                    sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
-                    return;
+                addresses = BatchRunner.parseBody(new String(body, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                sendResponse(exchange, 400, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+                return null;
+            }
+        } else if (allowGet && "GET".equals(method)) {
+            // 浏览器 EventSource 只能发 GET
+            String query = exchange.getRequestURI().getRawQuery();
+            addresses = new ArrayList<>();
+            if (query != null) {
+                for (String part : query.split(",")) {
+                    String address = URLDecoder.decode(part, StandardCharsets.UTF_8).trim();
+                    if (!address.isEmpty()) addresses.add(address);
                 }
+            }
+        } else {
+            sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+            return null;
+        }
 
-                // 获取查询参数
-                String query = exchange.getRequestURI().getRawQuery();
-                if (query == null || query.trim().isEmpty()) {
-                    sendResponse(exchange, 400, "{\"error\":\"Missing server address\"}");
-                    return;
+        if (addresses.isEmpty()) {
+            sendResponse(exchange, 400, "{\"error\":\"Missing server address\"}");
+            return null;
+        }
+        if (addresses.size() > BatchRunner.MAX_ADDRESSES) {
+            sendResponse(exchange, 413, "{\"error\":\"Too many addresses, limit is " + BatchRunner.MAX_ADDRESSES + "\"}");
+            return null;
+        }
+        return addresses;
+    }
+
+    private static void handleBatch(HttpExchange exchange, PingService pings) throws IOException {
+        List<String> addresses = readBatchAddresses(exchange, false);
+        if (addresses == null) return;
+
+        String query = exchange.getRequestURI().getRawQuery();
+        String format = query == null ? null : queryParam(query.split("&"), 0, "format");
+        if (format != null && !format.equals("json") && !format.equals("ndjson")) {
+            sendResponse(exchange, 400, "{\"error\":\"" + escapeJson("format must be json or ndjson: " + format) + "\"}");
+            return;
+        }
+        if ("ndjson".equals(format)) {
+            // 每行一个 JSON 对象，查询完成一个就写出一个
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+            streamResults(exchange, addresses, pings, false);
+            return;
+        }
+
+        ServerResult[] results = BatchRunner.runAll(addresses, pings.getConfig(), pings::query);
+        try (JsonWriter w = JsonWriter.borrow()) {
+            BatchRunner.writeJsonArray(w, addresses, results);
+            sendResponse(exchange, 200, w);
+        }
+    }
+
+    /** Server-Sent Events：GET /api/stream?a,b,c 或 POST 地址列表 */
+    private static void handleStream(HttpExchange exchange, PingService pings) throws IOException {
+        List<String> addresses = readBatchAddresses(exchange, true);
+        if (addresses == null) return;
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        streamResults(exchange, addresses, pings, true);
+    }
+
+    /**
+     * 分块（chunked）输出批量结果，每个结果在 ping 完成后立即写出
+     * 内存占用与地址数量无关，第一个结果不必等最慢的服务器
+     * @param sse true 为 SSE 格式，false 为 NDJSON
+     */
+    private static void streamResults(HttpExchange exchange, List<String> addresses,
+                                      PingService pings, boolean sse) throws IOException {
+        exchange.sendResponseHeaders(200, 0); // 0 → chunked
+        try (OutputStream os = exchange.getResponseBody()) {
+            // 客户端断开后不再写入，但已发起的查询仍会完成（结果进入缓存）
+            AtomicBoolean closed = new AtomicBoolean(false);
+            BatchRunner.run(addresses, pings.getConfig(), pings::query, (index, address, result) -> {
+                if (closed.get()) return;
+                try (JsonWriter w = JsonWriter.borrow()) {
+                    if (sse) w.raw("event: result\ndata: ");
+                    BatchRunner.writeWithAddress(w, address, result);
+                    w.raw(sse ? "\n\n" : "\n");
+                    synchronized (os) {
+                        try {
+                            w.writeTo(os);
+                            os.flush();
+                        } catch (IOException e) {
+                            closed.set(true);
+                        }
+                    }
                 }
+            });
+            if (sse && !closed.get()) {
+                os.write(("event: done\ndata: {\"count\":" + addresses.size() + "}\n\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
 
-                // 解码地址
-                String address = URLDecoder.decode(query, StandardCharsets.UTF_8);
-                HostPort hp;
-                try {
-                    hp = parseHostPort(address);
-                } catch (IllegalArgumentException e) {
-                    sendResponse(exchange, 400, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
-                    return;
+    /**
+     * GET /api/watch：列出关注的服务器及最近结果
+     * POST /api/watch?interval=毫秒：添加（请求体同 /api/batch）
+     * DELETE /api/watch?地址：删除
+     */
+    private static void handleWatch(HttpExchange exchange, WatchRegistry watches, Config config) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        String method = exchange.getRequestMethod();
+        String query = exchange.getRequestURI().getRawQuery();
+
+        if ("GET".equals(method)) {
+            try (JsonWriter w = JsonWriter.borrow()) {
+                w.beginArray();
+                for (WatchRegistry.Entry entry : watches.entries()) {
+                    ServerResult latest = entry.latest;
+                    w.beginObject()
+                            .name("address").value(entry.address)
+                            .name("interval").value(entry.intervalMillis)
+                            .name("updatedAt").value(entry.updatedAt)
+                            .name("failures").value(entry.failures)
+                            .name("result");
+                    if (latest == null) {
+                        w.value((String) null);
+                    } else {
+                        w.rawValue(latest.jsonBytes());
+                    }
+                    w.endObject();
                 }
+                sendResponse(exchange, 200, w.endArray());
+            }
+            return;
+        }
 
-                // ✅ 使用 queryServerResult 统一逻辑
-                ServerResult result;
-                try {
-                    result = queryServerResult(hp.host, hp.port);
-                } catch (Exception e) {
-                    // 捕获可能的运行时异常（如连接超时、DNS 错误等）
-                    String errorJson = String.format(
-                            "{"
-                                    + "\"host\":\"%s\","
-                                    + "\"port\":%d,"
-                                    + "\"online\":false,"
-                                    + "\"error\":\"Connection failed: %s\""
-                                    + "}",
-                            hp.host, hp.port, escapeJson(e.getMessage())
-                    );
-                    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
-                    sendResponse(exchange, 500, errorJson);
-                    return;
+        if ("DELETE".equals(method)) {
+            if (query == null || query.isEmpty()) {
+                sendResponse(exchange, 400, "{\"error\":\"Missing server address\"}");
+                return;
+            }
+            boolean removed = watches.remove(URLDecoder.decode(query, StandardCharsets.UTF_8));
+            sendResponse(exchange, removed ? 200 : 404, "{\"removed\":" + removed + "}");
+            return;
+        }
+
+        long interval = config.watchIntervalMillis;
+        if (query != null && query.startsWith("interval=")) {
+            try {
+                interval = Config.parsePositive("interval", query.substring("interval=".length()));
+            } catch (IllegalArgumentException e) {
+                sendResponse(exchange, 400, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+                return;
+            }
+        }
+        List<String> addresses = readBatchAddresses(exchange, false);
+        if (addresses == null) return;
+        // 全部地址检查通过才添加，出错时关注列表不变
+        try {
+            watches.addAll(addresses, interval);
+        } catch (WatchRegistry.InvalidAddressException e) {
+            sendResponse(exchange, 400, "{\"address\":\"" + escapeJson(e.address) + "\",\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
+        } catch (IllegalStateException e) {
+            sendResponse(exchange, 409, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
+        }
+        sendResponse(exchange, 200, "{\"added\":" + addresses.size() + "}");
+    }
+
+    /** 历史记录默认返回最近一天 */
+    private static final long DEFAULT_HISTORY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    /** 单次返回的历史记录条数上限 */
+    private static final int MAX_HISTORY_POINTS = 100_000;
+
+    /** GET /api/history?地址&from=毫秒&to=毫秒&limit=条数 */
+    private static void handleHistory(HttpExchange exchange, HistoryStore history, Config config) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        if (history == null) {
+            sendResponse(exchange, 404, "{\"error\":\"History is disabled, start the server with --history-dir\"}");
+            return;
+        }
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            sendResponse(exchange, 400, "{\"error\":\"Missing server address\"}");
+            return;
+        }
+
+        String[] params = query.split("&");
+        long to = System.currentTimeMillis();
+        long from = -1;
+        int limit = MAX_HISTORY_POINTS;
+        HostPort hp;
+        try {
+            for (int i = 1; i < params.length; i++) {
+                int eq = params[i].indexOf('=');
+                String key = eq < 0 ? params[i] : params[i].substring(0, eq);
+                String value = eq < 0 ? "" : params[i].substring(eq + 1);
+                switch (key) {
+                    case "from" -> from = Config.parseNonNegative(key, value);
+                    case "to" -> to = Config.parseNonNegative(key, value);
+                    case "limit" -> limit = Math.min(limit, Config.parsePositive(key, value));
+                    default -> { } // 忽略未知参数
+                }
+            }
+            hp = parseHostPort(URLDecoder.decode(params[0], StandardCharsets.UTF_8), config.newDeadline());
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
+        }
+        if (from < 0) {
+            from = to - DEFAULT_HISTORY_MILLIS;
+        }
+
+        List<HistoryStore.Point> points = history.query(hp, from, to, limit);
+        try (JsonWriter w = JsonWriter.borrow()) {
+            w.beginObject()
+                    .name("host").value(hp.host)
+                    .name("port").value(hp.port)
+                    .name("from").value(from)
+                    .name("to").value(to)
+                    .name("points").beginArray();
+            for (HistoryStore.Point p : points) {
+                w.beginObject()
+                        .name("time").value(p.timestamp)
+                        .name("online").value(p.online);
+                if (p.timedOut) {
+                    w.name("timedOut").value(true);
+                }
+                if (p.online) {
+                    w.name("protocol").value(p.protocol)
+                            .name("playersOnline").value(p.playersOnline)
+                            .name("maxPlayers").value(p.maxPlayers)
+                            .name("ping").value(p.ping);
+                }
+                w.endObject();
+            }
+            w.endArray().endObject();
+            sendResponse(exchange, 200, w);
+        }
+    }
+
+    /** GET /api/motd?地址&format=html|json|text：渲染后的 MOTD（HTML 文档、JSON 文本组件或纯文本），结果来自缓存的渲染 */
+    private static void handleMotd(HttpExchange exchange, PingService pings, Config config) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            sendResponse(exchange, 400, "{\"error\":\"Missing server address\"}");
+            return;
+        }
+
+        String[] params = query.split("&");
+        String format = "html";
+        Deadline deadline;
+        HostPort hp;
+        try {
+            String requested = queryParam(params, 1, "format");
+            if (requested != null) {
+                format = requested;
+                if (!format.equals("html") && !format.equals("json") && !format.equals("text")) {
+                    throw new IllegalArgumentException("format must be html, json or text: " + format);
                 }
+            }
+            deadline = requestDeadline(params, config);
+            hp = parseHostPort(URLDecoder.decode(params[0], StandardCharsets.UTF_8), deadline);
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
+        }
+
+        ServerResult result;
+        try {
+            result = pings.query(hp, deadline);
+        } catch (DeadlineExceededException e) {
+            sendResponse(exchange, 504, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
+        } catch (RejectedExecutionException e) {
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(config.retryAfterSeconds));
+            sendResponse(exchange, 503, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
+        } catch (RateLimitedException e) {
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+            sendResponse(exchange, 429, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
+        }
+        if (!result.isOnline()) {
+            sendResponse(exchange, result.isTimedOut() ? 504 : 500, result.jsonBytes());
+            return;
+        }
 
-                // ✅ 提取 JSON 响应
-                // 注意：queryServerResult 返回的 json 已经是完整对象，包含 "online":true/false
-                // 我们可以根据 JSON 内容判断状态码
-                int statusCode = result.json.contains("\"online\":true") ? 200 : 500;
+        Motd motd = result.status.motd;
+        switch (format) {
+            case "html" -> {
+                exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+                sendResponse(exchange, 200, motd.rendered().html);
+            }
+            case "text" -> {
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                sendResponse(exchange, 200, motd.plain());
+            }
+            default -> sendResponse(exchange, 200, motd.rendered().json);
+        }
+    }
 
-                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
-                sendResponse(exchange, statusCode, result.json);
+    /**
+     * GET /api/favicon?地址 或 /api/favicon?hash=内容哈希：服务器图标（PNG）
+     * 按哈希获取的内容不会变化，可以永久缓存；按地址获取的缓存时间与查询结果一致
+     */
+    private static void handleFavicon(HttpExchange exchange, PingService pings, Config config) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            sendResponse(exchange, 400, "{\"error\":\"Missing server address\"}");
+            return;
+        }
+
+        if (query.startsWith("hash=")) {
+            String hash = query.substring("hash=".length());
+            byte[] png = FaviconStore.isHash(hash) ? FaviconStore.get(hash) : null;
+            if (png == null) {
+                sendResponse(exchange, 404, "{\"error\":\"Unknown favicon\"}");
+                return;
+            }
+            sendFavicon(exchange, hash, png, "public, max-age=31536000, immutable");
+            return;
+        }
+
+        String[] params = query.split("&");
+        Deadline deadline;
+        HostPort hp;
+        try {
+            deadline = requestDeadline(params, config);
+            hp = parseHostPort(URLDecoder.decode(params[0], StandardCharsets.UTF_8), deadline);
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
+        }
+
+        ServerResult result;
+        try {
+            result = pings.query(hp, deadline);
+        } catch (DeadlineExceededException e) {
+            sendResponse(exchange, 504, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
+        } catch (RejectedExecutionException e) {
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(config.retryAfterSeconds));
+            sendResponse(exchange, 503, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
+        } catch (RateLimitedException e) {
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+            sendResponse(exchange, 429, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
+        }
+        if (!result.isOnline()) {
+            sendResponse(exchange, result.isTimedOut() ? 504 : 500, result.jsonBytes());
+            return;
+        }
+
+        // 结果持有图标的引用，这里只在图标无法解码时为 null
+        byte[] png = FaviconStore.get(result.status.favicon);
+        if (png == null) {
+            sendResponse(exchange, 404, "{\"error\":\"Server has no favicon\"}");
+            return;
+        }
+        long remainingMillis = config.cacheTtlMillis - (System.currentTimeMillis() - result.createdAt);
+        sendFavicon(exchange, result.status.favicon, png,
+                remainingMillis >= 1000 ? "max-age=" + remainingMillis / 1000 : "no-cache");
+    }
+
+    /** 发送 PNG，ETag 即内容哈希，If-None-Match 匹配时返回 304 */
+    private static void sendFavicon(HttpExchange exchange, String hash, byte[] png, String cacheControl) throws IOException {
+        String etag = "\"" + hash + "\"";
+        exchange.getResponseHeaders().set("Content-Type", "image/png");
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Cache-Control", cacheControl);
+        if (matchesEtag(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        sendResponse(exchange, 200, png);
+    }
+
+    /** GET /api/stats?地址&from=毫秒&to=毫秒&tier=minute|hour|day */
+    private static void handleStats(HttpExchange exchange, HistoryRollup rollup, Config config) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        if (rollup == null) {
+            sendResponse(exchange, 404, "{\"error\":\"History is disabled, start the server with --history-dir\"}");
+            return;
+        }
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            sendResponse(exchange, 400, "{\"error\":\"Missing server address\"}");
+            return;
+        }
 
+        String[] params = query.split("&");
+        long now = System.currentTimeMillis();
+        long to = now;
+        long from = -1;
+        HistoryRollup.Tier tier = null;
+        HostPort hp;
+        try {
+            for (int i = 1; i < params.length; i++) {
+                int eq = params[i].indexOf('=');
+                String key = eq < 0 ? params[i] : params[i].substring(0, eq);
+                String value = eq < 0 ? "" : params[i].substring(eq + 1);
+                switch (key) {
+                    case "from" -> from = Config.parseNonNegative(key, value);
+                    case "to" -> to = Config.parseNonNegative(key, value);
+                    case "tier" -> {
+                        tier = HistoryRollup.Tier.of(value);
+                        if (tier == null) {
+                            throw new IllegalArgumentException("tier must be minute, hour or day: " + value);
+                        }
+                    }
+                    default -> { } // 忽略未知参数
+                }
+            }
+            hp = parseHostPort(URLDecoder.decode(params[0], StandardCharsets.UTF_8), config.newDeadline());
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
+        }
+        if (from < 0) {
+            from = to - DEFAULT_HISTORY_MILLIS;
+        }
+        if (tier == null) {
+            tier = HistoryRollup.chooseTier(from, to, now);
+        }
+
+        List<HistoryRollup.Bucket> buckets = rollup.query(hp, tier, from, to);
+        try (JsonWriter w = JsonWriter.borrow()) {
+            w.beginObject()
+                    .name("host").value(hp.host)
+                    .name("port").value(hp.port)
+                    .name("from").value(from)
+                    .name("to").value(to)
+                    .name("tier").value(tier.label)
+                    .name("summary");
+            writeBucket(w, HistoryRollup.merge(buckets, from), false);
+            w.name("buckets").beginArray();
+            for (HistoryRollup.Bucket b : buckets) {
+                writeBucket(w, b, true);
+            }
+            w.endArray().endObject();
+            sendResponse(exchange, 200, w);
+        }
+    }
+
+    /** 一个汇总桶：样本数、在线率、在线人数和延迟分位数（没有在线样本时省略） */
+    private static void writeBucket(JsonWriter w, HistoryRollup.Bucket b, boolean withStart) {
+        w.beginObject();
+        if (withStart) {
+            w.name("time").value(b.start);
+        }
+        w.name("samples").value(b.samples)
+                .name("online").value(b.online);
+        if (b.timedOut > 0) {
+            w.name("timedOut").value(b.timedOut);
+        }
+        if (b.online > 0) {
+            w.name("playersMin").value(b.playersMin)
+                    .name("playersMax").value(b.playersMax)
+                    .name("playersAvg").value(Math.round((double) b.playersSum / b.online))
+                    .name("pingP50").value(HistoryRollup.quantile(b, 0.50))
+                    .name("pingP95").value(HistoryRollup.quantile(b, 0.95))
+                    .name("pingP99").value(HistoryRollup.quantile(b, 0.99));
+        }
+        w.endObject();
+    }
+
+    private static void setPropertyIfAbsent(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    /**
+     * 创建 HTTP 上下文并挂上指标统计，以及额外的过滤器（如限流）
+     * 处理器抛出的异常统一打印并返回 500（响应已开始发送时只能放弃）
+     */
+    private static void createContext(HttpServer server, String path, HttpHandler handler, Filter... filters) {
+        List<Filter> chain = server.createContext(path, exchange -> {
+            try {
+                handler.handle(exchange);
             } catch (Exception e) {
                 e.printStackTrace();
                 try {
                     sendResponse(exchange, 500, "{\"error\":\"Internal server error\"}");
                 } catch (IOException ignored) {}
             }
+        }).getFilters();
+        chain.add(Metrics.httpFilter());
+        chain.addAll(List.of(filters));
+    }
+
+    static void runAsServer(int listenPort, Config config) throws IOException {
+        System.out.println(i18n().getString("app.server.startListenOn") + listenPort);
+
+        // 缓存 + 合并并发请求 + 并发上限
+        PingService pings = new PingService(config);
+
+        // 关注列表：定时刷新，/api 直接返回最近结果
+        WatchRegistry watches = new WatchRegistry(pings);
+        pings.setWatches(watches);
+        if (config.watchFile != null) {
+            try {
+                watches.load(Path.of(config.watchFile), config.watchIntervalMillis);
+            } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+                System.err.println(i18n().getString("app.error.readAddressList") + e.getMessage());
+            }
+        }
+
+        // ping 历史记录
+        HistoryStore history = null;
+        HistoryRollup rollup = null;
+        if (config.historyDir != null) {
+            history = new HistoryStore(Path.of(config.historyDir), TimeUnit.DAYS.toMillis(config.historyRetentionDays));
+            // 分级汇总：读取快照中的小时级、天级桶，再从历史记录补上快照之后的部分
+            rollup = new HistoryRollup(Path.of(config.historyDir).resolve(HistoryRollup.SNAPSHOT_FILE));
+            rollup.restore(history);
+            pings.setHistory(history);
+            pings.setRollup(rollup);
+            Runtime.getRuntime().addShutdownHook(new Thread(history::close));
+            Runtime.getRuntime().addShutdownHook(new Thread(rollup::save));
+        }
+
+        // 服务器图标：内存上限和可选的溢出目录
+        try {
+            FaviconStore.configure(config.faviconCacheMb * 1024L * 1024L,
+                    config.faviconDir == null ? null : Path.of(config.faviconDir));
+        } catch (IOException e) {
+            System.err.println(i18n().getString("app.error.faviconDir") + e.getMessage());
+        }
+
+        // 按客户端 IP 限流（--rate-limit 为 0 时不限）
+        Filter rateLimit = new ClientRateLimiter(config.rateLimit, config.rateBurst).filter();
+
+        // 连接复用：轮询客户端每隔几秒请求一次，空闲连接保留得更久、数量更多；小响应关闭 Nagle 立即发出
+        // 这些属性在第一次创建 HttpServer 时读取，命令行 -D 指定的值优先
+        System.setProperty("sun.net.httpserver.idleInterval", String.valueOf(config.keepAliveSeconds));
+        setPropertyIfAbsent("sun.net.httpserver.maxIdleConnections", "1000");
+        setPropertyIfAbsent("sun.net.httpserver.nodelay", "true");
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(listenPort), 0);
+        // 批量查询：POST /api/batch，请求体为地址数组或每行一个地址
+        createContext(server, "/api/batch", exchange -> handleBatch(exchange, pings), rateLimit);
+
+        // 历史记录：GET /api/history?地址&from=毫秒&to=毫秒&limit=条数
+        HistoryStore historyStore = history;
+        createContext(server, "/api/history", exchange -> handleHistory(exchange, historyStore, config), rateLimit);
+
+        // 渲染后的 MOTD：GET /api/motd?地址&format=html|json|text
+        createContext(server, "/api/motd", exchange -> handleMotd(exchange, pings, config), rateLimit);
+
+        // 服务器图标：GET /api/favicon?地址 或 ?hash=内容哈希
+        createContext(server, "/api/favicon", exchange -> handleFavicon(exchange, pings, config), rateLimit);
+
+        // 汇总统计：GET /api/stats?地址&from=毫秒&to=毫秒&tier=minute|hour|day
+        HistoryRollup historyRollup = rollup;
+        createContext(server, "/api/stats", exchange -> handleStats(exchange, historyRollup, config), rateLimit);
+
+        // Prometheus 指标
+        createContext(server, "/metrics", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            sendResponse(exchange, 200, Metrics.render());
         });
 
-        server.setExecutor(null);
+        // 关注列表管理：GET 列出，POST 添加，DELETE 删除
+        createContext(server, "/api/watch", exchange -> handleWatch(exchange, watches, config), rateLimit);
+
+        // 流式批量查询（SSE），适合扫描大量服务器
+        createContext(server, "/api/stream", exchange -> handleStream(exchange, pings), rateLimit);
+
+        createContext(server, "/api", exchange -> {
+            // 只处理 GET 请求
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+                return;
+            }
+
+            // 获取查询参数
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query == null || query.trim().isEmpty()) {
+                sendResponse(exchange, 400, "{\"error\":\"Missing server address\"}");
+                return;
+            }
+
+            // ?地址&timeout=毫秒&connectTimeout=毫秒&readTimeout=毫秒
+            String[] params = query.split("&");
+            Deadline deadline;
+            try {
+                deadline = requestDeadline(params, config);
+            } catch (IllegalArgumentException e) {
+                sendResponse(exchange, 400, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+                return;
+            }
+
+            // 解码地址
+            String address = URLDecoder.decode(params[0], StandardCharsets.UTF_8);
+            HostPort hp;
+            try {
+                hp = parseHostPort(address, deadline);
+            } catch (IllegalArgumentException e) {
+                sendResponse(exchange, 400, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+                return;
+            }
+
+            // ✅ 使用 queryServerResult 统一逻辑（经由缓存和请求合并）
+            ServerResult result;
+            try {
+                result = pings.query(hp, deadline);
+            } catch (DeadlineExceededException e) {
+                // 等待同一服务器的 ping 超时
+                ServerResult timeout = new ServerResult(hp.host, hp.port, PingStatus.timeout(e.getMessage()));
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                sendResponse(exchange, 504, timeout.jsonBytes());
+                return;
+            } catch (RejectedExecutionException e) {
+                // 并发 ping 已满，告诉客户端稍后重试
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(config.retryAfterSeconds));
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                sendResponse(exchange, 503, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+                return;
+            } catch (RateLimitedException e) {
+                // 目标主机限速且没有缓存数据
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                sendResponse(exchange, 429, "{\"error\":\"" + escapeJson(e.getMessage()) + "\"}");
+                return;
+            } catch (Exception e) {
+                // 捕获可能的运行时异常（如连接超时、DNS 错误等）
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                try (JsonWriter w = JsonWriter.borrow()) {
+                    sendResponse(exchange, 500, w.beginObject()
+                            .name("host").value(hp.host)
+                            .name("port").value(hp.port)
+                            .name("online").value(false)
+                            .name("error").value("Connection failed: " + e.getMessage())
+                            .endObject());
+                }
+                return;
+            }
+
+            // ✅ 根据结果状态决定状态码
+            int statusCode = result.isOnline() ? 200 : result.isTimedOut() ? 504 : 500;
+
+            sendResult(exchange, statusCode, result, config.cacheTtlMillis);
+        }, rateLimit);
+
+        // 每个请求一个虚拟线程，慢速/不可达的服务器不再阻塞其他请求
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
         server.start();
 
-        System.out.println(i18n.getString("app.server.started") +
+        System.out.println(i18n().getString("app.server.started") +
                 "http://localhost:" + listenPort + "/api?youraddress" +
-                i18n.getString("app.server.or") +
+                i18n().getString("app.server.or") +
                 "http://localhost:" + listenPort + "/api?youraddress:yourport");
     }
 }
\ No newline at end of file
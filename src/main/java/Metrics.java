@@ -0,0 +1,196 @@
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Prometheus 文本格式的运行指标
+ * 计数器和直方图都基于 LongAdder，请求路径上不加锁
+ */
+public final class Metrics {
+
+    private Metrics() {}
+
+    /** 延迟直方图：固定桶（秒），每个桶一个 LongAdder */
+    static final class Histogram {
+        private static final double[] BOUNDS = {
+                0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+        };
+
+        final String name;
+        final String help;
+        private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+        private final LongAdder sumNanos = new LongAdder();
+
+        Histogram(String name, String help) {
+            this.name = name;
+            this.help = help;
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void observeNanos(long nanos) {
+            double seconds = nanos / 1e9;
+            int i = 0;
+            while (i < BOUNDS.length && seconds > BOUNDS[i]) i++;
+            buckets[i].increment();
+            sumNanos.add(nanos);
+        }
+
+        /** 记录从 startNanos（System.nanoTime()）到现在的耗时 */
+        void observeSince(long startNanos) {
+            observeNanos(System.nanoTime() - startNanos);
+        }
+
+        void render(StringBuilder sb) {
+            sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            sb.append("# TYPE ").append(name).append(" histogram\n");
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i].sum();
+                String le = i < BOUNDS.length ? Double.toString(BOUNDS[i]) : "+Inf";
+                sb.append(name).append("_bucket{le=\"").append(le).append("\"} ").append(cumulative).append('\n');
+            }
+            sb.append(name).append("_sum ").append(sumNanos.sum() / 1e9).append('\n');
+            sb.append(name).append("_count ").append(cumulative).append('\n');
+        }
+    }
+
+    /** 带一个标签的计数器，标签值在首次使用时创建 */
+    static final class LabeledCounter {
+        final String name;
+        final String help;
+        final String label;
+        private final ConcurrentHashMap<String, LongAdder> values = new ConcurrentHashMap<>();
+
+        LabeledCounter(String name, String help, String label) {
+            this.name = name;
+            this.help = help;
+            this.label = label;
+        }
+
+        void increment(String value) {
+            LongAdder adder = values.get(value);
+            if (adder == null) {
+                adder = values.computeIfAbsent(value, k -> new LongAdder());
+            }
+            adder.increment();
+        }
+
+        long get(String value) {
+            LongAdder adder = values.get(value);
+            return adder == null ? 0 : adder.sum();
+        }
+
+        void render(StringBuilder sb) {
+            sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            sb.append("# TYPE ").append(name).append(" counter\n");
+            for (Map.Entry<String, LongAdder> e : new TreeMap<>(values).entrySet()) {
+                sb.append(name).append('{').append(label).append("=\"").append(e.getKey()).append("\"} ")
+                        .append(e.getValue().sum()).append('\n');
+            }
+        }
+    }
+
+    private static final class Gauge {
+        final String name;
+        final String help;
+        final LongSupplier value;
+
+        Gauge(String name, String help, LongSupplier value) {
+            this.name = name;
+            this.help = help;
+            this.value = value;
+        }
+    }
+
+    // === 各阶段延迟 ===
+    static final Histogram PARSE = new Histogram("mcserverinfo_parse_seconds",
+            "parseHostPort duration, including the SRV lookup when no port is given");
+    static final Histogram SRV = new Histogram("mcserverinfo_srv_lookup_seconds",
+            "SRV resolution duration on cache miss");
+    static final Histogram CONNECT = new Histogram("mcserverinfo_connect_seconds",
+            "TCP connect duration (nio engine)");
+    static final Histogram STATUS = new Histogram("mcserverinfo_status_seconds",
+            "Handshake to pong duration after connect (nio engine)");
+    static final Histogram QUERY = new Histogram("mcserverinfo_query_seconds",
+            "queryServerResult duration");
+
+    // === 计数器 ===
+    static final LabeledCounter HTTP_RESPONSES = new LabeledCounter("mcserverinfo_http_responses_total",
+            "HTTP responses by status code", "code");
+    static final LabeledCounter PINGS = new LabeledCounter("mcserverinfo_pings_total",
+            "Ping results", "result");
+    static final LabeledCounter RESULT_CACHE = new LabeledCounter("mcserverinfo_result_cache_total",
+            "Result cache lookups", "outcome");
+    static final LabeledCounter SRV_CACHE = new LabeledCounter("mcserverinfo_srv_cache_total",
+            "SRV cache lookups", "outcome");
+    static final LabeledCounter RATE_LIMITED = new LabeledCounter("mcserverinfo_rate_limited_total",
+            "Requests or pings rejected by rate limiting", "scope");
+    static final LabeledCounter MOTD_CACHE = new LabeledCounter("mcserverinfo_motd_render_cache_total",
+            "MOTD parse/render cache lookups", "outcome");
+    static final LabeledCounter FAVICON_CACHE = new LabeledCounter("mcserverinfo_favicon_cache_total",
+            "Favicon store lookups", "outcome");
+
+    // === 仪表 ===
+    static final LongAdder HTTP_IN_FLIGHT = new LongAdder();
+    static final LongAdder NIO_SESSIONS = new LongAdder();
+
+    private static final List<Gauge> gauges = new CopyOnWriteArrayList<>();
+
+    static {
+        gauge("mcserverinfo_http_in_flight", "HTTP exchanges being handled", HTTP_IN_FLIGHT::sum);
+        gauge("mcserverinfo_nio_sessions", "Pings in flight on the nio engine", NIO_SESSIONS::sum);
+    }
+
+    /** 注册一个按需读取的仪表（注册很少发生，读取时不加锁） */
+    static void gauge(String name, String help, LongSupplier value) {
+        gauges.add(new Gauge(name, help, value));
+    }
+
+    /** 统计所有 HTTP 请求的进行数和响应状态码 */
+    static Filter httpFilter() {
+        return new Filter() {
+            @Override
+            public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+                HTTP_IN_FLIGHT.increment();
+                try {
+                    chain.doFilter(exchange);
+                } finally {
+                    HTTP_IN_FLIGHT.decrement();
+                    int code = exchange.getResponseCode();
+                    HTTP_RESPONSES.increment(code < 0 ? "none" : Integer.toString(code));
+                }
+            }
+
+            @Override
+            public String description() {
+                return "metrics";
+            }
+        };
+    }
+
+    static String render() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (Histogram h : new Histogram[]{PARSE, SRV, CONNECT, STATUS, QUERY}) {
+            h.render(sb);
+        }
+        for (LabeledCounter c : new LabeledCounter[]{HTTP_RESPONSES, PINGS, RESULT_CACHE, SRV_CACHE, RATE_LIMITED, MOTD_CACHE, FAVICON_CACHE}) {
+            c.render(sb);
+        }
+        for (Gauge g : gauges) {
+            sb.append("# HELP ").append(g.name).append(' ').append(g.help).append('\n');
+            sb.append("# TYPE ").append(g.name).append(" gauge\n");
+            sb.append(g.name).append(' ').append(g.value.getAsLong()).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,256 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 解析后的 MOTD：按样式划分的文本段，不可变
+ * - 由 JSON 文本组件（ChatComponentParser）或带 § 代码的字符串解析而来，文本中的 § 代码同样生效
+ * - Motd.of 按原始内容驻留（LRU），相同 MOTD 的多个查询结果共享同一个实例，只解析一次
+ * - 各种输出（纯文本、HTML、ANSI、JSON 组件）在第一次使用时生成并保存在实例中
+ */
+final class Motd {
+
+    /** 颜色编码：-1 无颜色，0~15 为 § 颜色代码，HEX | rgb 为十六进制颜色 */
+    static final int HEX = 0x1000000;
+
+    static final String CODES = "0123456789abcdef";
+    static final String[] NAMES = {
+            "black", "dark_blue", "dark_green", "dark_aqua", "dark_red", "dark_purple", "gold", "gray",
+            "dark_gray", "blue", "green", "aqua", "red", "light_purple", "yellow", "white"
+    };
+    /** 样式标志（第 i 位）对应的格式代码和 JSON 字段：粗体、斜体、下划线、删除线、乱码 */
+    static final char[] FORMAT_CODES = {'l', 'o', 'n', 'm', 'k'};
+    static final String[] FORMAT_FIELDS = {"bold", "italic", "underlined", "strikethrough", "obfuscated"};
+
+    private static final int INTERN_SIZE = 1024;
+    private static final LinkedHashMap<String, Motd> interned = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Motd> eldest) {
+            return size() > INTERN_SIZE;
+        }
+    };
+    static final Motd EMPTY = new Motd("", false, new String[0], new int[0], new byte[0]);
+
+    /** 原始 MOTD */
+    final String raw;
+    /** raw 是否为合法的 JSON 文本组件（可以原样嵌入 JSON 输出） */
+    final boolean json;
+    private final String[] texts;
+    private final int[] colors;
+    private final byte[] flags;
+
+    // 懒生成的输出，并发首次访问时可能重复生成，结果相同
+    private volatile String plain;
+    private volatile MotdFormatter.Rendered rendered;
+
+    private Motd(String raw, boolean json, String[] texts, int[] colors, byte[] flags) {
+        this.raw = raw;
+        this.json = json;
+        this.texts = texts;
+        this.colors = colors;
+        this.flags = flags;
+    }
+
+    /** 取得（必要时解析并驻留）原始 MOTD 对应的实例，null 视为空 */
+    static Motd of(String raw) {
+        if (raw == null || raw.isEmpty()) return EMPTY;
+        Motd m;
+        synchronized (interned) {
+            m = interned.get(raw);
+        }
+        if (m != null) {
+            Metrics.MOTD_CACHE.increment("hit");
+            return m;
+        }
+        Metrics.MOTD_CACHE.increment("miss");
+        // 在锁外解析；并发首次解析时保留先放入的实例
+        Motd parsed = parse(raw);
+        synchronized (interned) {
+            m = interned.putIfAbsent(raw, parsed);
+        }
+        return m != null ? m : parsed;
+    }
+
+    /** 不经过驻留表直接解析 */
+    static Motd parse(String raw) {
+        Builder b = new Builder();
+        char first = raw.charAt(0);
+        boolean json = (first == '{' || first == '[') && ChatComponentParser.parse(raw, b);
+        if (!json) {
+            b.reset();
+            b.append(raw, -1, 0);
+        }
+        return b.build(raw, json);
+    }
+
+    int size() {
+        return texts.length;
+    }
+
+    String text(int i) {
+        return texts[i];
+    }
+
+    int color(int i) {
+        return colors[i];
+    }
+
+    int flags(int i) {
+        return flags[i];
+    }
+
+    /** 去掉所有颜色和样式的纯文本 */
+    String plain() {
+        String p = plain;
+        if (p == null) {
+            plain = p = String.join("", texts);
+        }
+        return p;
+    }
+
+    MotdFormatter.Rendered rendered() {
+        MotdFormatter.Rendered r = rendered;
+        if (r == null) {
+            rendered = r = MotdFormatter.render(this);
+        }
+        return r;
+    }
+
+    /**
+     * 按顺序收集文本段：每段文本以给定样式开始，文本中的 § 代码继续修改样式（状态机）
+     * 样式相同的相邻段合并
+     */
+    static final class Builder {
+        private String[] texts = new String[8];
+        private int[] colors = new int[8];
+        private byte[] flags = new byte[8];
+        private int size;
+        /** 已结束的各段的字符总数 */
+        private int length;
+        private final StringBuilder text = new StringBuilder();
+
+        void reset() {
+            size = 0;
+            length = 0;
+            text.setLength(0);
+        }
+
+        int length() {
+            return length;
+        }
+
+        /** 按顺序追加 other 的所有段（与上一段样式相同时同样合并） */
+        void appendAll(Builder other) {
+            for (int i = 0; i < other.size; i++) {
+                text.append(other.texts[i]);
+                flush(other.colors[i], other.flags[i]);
+            }
+        }
+
+        void append(String s, int color, int style) {
+            int n = s.length();
+            for (int i = 0; i < n; i++) {
+                char c = s.charAt(i);
+                if (c != '§') {
+                    // 去掉控制字符，保留换行和制表符
+                    if (c == '\n' || c == '\t' || (c >= 0x20 && c != 0x7F)) {
+                        text.append(c);
+                    }
+                    continue;
+                }
+                if (i + 1 >= n) break; // 末尾孤立的 §
+                char code = Character.toLowerCase(s.charAt(i + 1));
+                int newColor = color;
+                int newStyle = style;
+                int idx = CODES.indexOf(code);
+                if (idx >= 0) {
+                    newColor = idx;
+                    newStyle = 0; // 颜色代码同时清除样式
+                    i++;
+                } else if (code == 'x' && isHexSequence(s, i + 2)) {
+                    int rgb = 0;
+                    for (int k = 0; k < 6; k++) {
+                        rgb = (rgb << 4) | Addresses.hexValue(s.charAt(i + 3 + 2 * k));
+                    }
+                    newColor = HEX | rgb;
+                    newStyle = 0;
+                    i += 13;
+                } else if (code == 'r') {
+                    newColor = -1;
+                    newStyle = 0;
+                    i++;
+                } else {
+                    int f = formatIndex(code);
+                    if (f >= 0) newStyle |= 1 << f;
+                    i++; // 未知代码直接丢弃
+                }
+                if (newColor != color || newStyle != style) {
+                    flush(color, style);
+                    color = newColor;
+                    style = newStyle;
+                }
+            }
+            flush(color, style);
+        }
+
+        /** 结束当前段；与上一段样式相同时合并 */
+        private void flush(int color, int style) {
+            if (text.isEmpty()) return;
+            length += text.length();
+            if (size > 0 && colors[size - 1] == color && flags[size - 1] == style) {
+                texts[size - 1] = texts[size - 1] + text;
+            } else {
+                if (size == texts.length) {
+                    texts = Arrays.copyOf(texts, size * 2);
+                    colors = Arrays.copyOf(colors, size * 2);
+                    flags = Arrays.copyOf(flags, size * 2);
+                }
+                texts[size] = text.toString();
+                colors[size] = color;
+                flags[size] = (byte) style;
+                size++;
+            }
+            text.setLength(0);
+        }
+
+        Motd build(String raw, boolean json) {
+            return new Motd(raw, json, Arrays.copyOf(texts, size),
+                    Arrays.copyOf(colors, size), Arrays.copyOf(flags, size));
+        }
+    }
+
+    /** 颜色名或 #RRGGBB，无法识别返回 -1 */
+    static int parseColor(String value) {
+        if (value.length() == 7 && value.charAt(0) == '#') {
+            int rgb = 0;
+            for (int i = 1; i < 7; i++) {
+                int d = Addresses.hexValue(value.charAt(i));
+                if (d < 0) return -1;
+                rgb = (rgb << 4) | d;
+            }
+            return HEX | rgb;
+        }
+        for (int i = 0; i < NAMES.length; i++) {
+            if (NAMES[i].equals(value)) return i;
+        }
+        return -1;
+    }
+
+    /** from 开始是否为 6 组 §h */
+    private static boolean isHexSequence(String s, int from) {
+        if (from + 12 > s.length()) return false;
+        for (int k = 0; k < 6; k++) {
+            if (s.charAt(from + 2 * k) != '§' || !Addresses.isHexDigit(s.charAt(from + 2 * k + 1))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int formatIndex(char code) {
+        for (int i = 0; i < FORMAT_CODES.length; i++) {
+            if (FORMAT_CODES[i] == code) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,190 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MOTD 输出：把解析好的 Motd 文本段转换为 HTML、ANSI（命令行）和 JSON 文本组件
+ * - 解析（JSON 组件、§ 代码状态机）见 Motd 和 ChatComponentParser
+ * - 渲染结果保存在驻留的 Motd 实例中，同一个 MOTD 只渲染一次
+ */
+final class MotdFormatter {
+
+    private static final String[] RGB = {
+            "#000000", "#0000AA", "#00AA00", "#00AAAA", "#AA0000", "#AA00AA", "#FFAA00", "#AAAAAA",
+            "#555555", "#5555FF", "#55FF55", "#55FFFF", "#FF5555", "#FF55FF", "#FFFF55", "#FFFFFF"
+    };
+    /** § 颜色代码 0~f 对应的 ANSI 前景色 */
+    private static final int[] ANSI_COLORS = {30, 34, 32, 36, 31, 35, 33, 37, 90, 94, 92, 96, 91, 95, 93, 97};
+    /** 样式标志（第 i 位）对应的 ANSI SGR 参数，乱码（0）在终端中不显示 */
+    private static final int[] ANSI_FORMATS = {1, 3, 4, 9, 0};
+    private static final String ANSI_RESET = "\u001B[0m";
+    /** 样式标志（第 i 位）对应的 HTML 标签，顺序与 Motd.FORMAT_FIELDS 一致 */
+    private static final String[] FORMAT_TAGS = {"b", "i", "u", "s", "span class='obfuscated'"};
+
+    private static final String HTML_HEAD = "<html><body style='font-family:sans-serif;'>";
+    private static final String HTML_TAIL = "</body></html>";
+
+    /** 渲染结果 */
+    static final class Rendered {
+        /** HTML 片段（不含 html/body） */
+        final String fragment;
+        /** 完整 HTML 文档（Swing 组件直接显示） */
+        final String html;
+        /** JSON 文本组件：{"text":"","extra":[...]} */
+        final String json;
+        /** 带 ANSI 颜色的终端文本 */
+        final String ansi;
+
+        Rendered(String fragment, String json, String ansi) {
+            this.fragment = fragment;
+            this.html = HTML_HEAD + fragment + HTML_TAIL;
+            this.json = json;
+            this.ansi = ansi;
+        }
+    }
+
+    private MotdFormatter() {
+    }
+
+    /**
+     * 渲染 MOTD（结果随驻留的 Motd 缓存）
+     * @param rawMotd 原始 MOTD：JSON 组件文本或带 § 代码的字符串，null 视为空
+     */
+    static Rendered render(String rawMotd) {
+        return Motd.of(rawMotd).rendered();
+    }
+
+    /** 不经过驻留表，重新解析并渲染 */
+    static Rendered renderUncached(String rawMotd) {
+        return render(Motd.parse(rawMotd));
+    }
+
+    static Rendered render(Motd motd) {
+        return new Rendered(toHtml(motd), toJson(motd), toAnsi(motd));
+    }
+
+    static String html(String rawMotd) {
+        return render(rawMotd).html;
+    }
+
+    /** 转义 HTML 并去掉控制字符，换行转为 br（用于 MOTD 以外的文本） */
+    static String escapeHtml(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 16);
+        appendHtml(sb, s);
+        return sb.toString();
+    }
+
+    private static String toHtml(Motd motd) {
+        StringBuilder sb = new StringBuilder();
+        for (int r = 0; r < motd.size(); r++) {
+            int color = motd.color(r);
+            int flags = motd.flags(r);
+            if (color >= 0) {
+                sb.append("<font color='").append(colorHex(color)).append("'>");
+            }
+            for (int i = 0; i < FORMAT_TAGS.length; i++) {
+                if ((flags & (1 << i)) != 0) sb.append('<').append(FORMAT_TAGS[i]).append('>');
+            }
+            appendHtml(sb, motd.text(r));
+            for (int i = FORMAT_TAGS.length - 1; i >= 0; i--) {
+                if ((flags & (1 << i)) != 0) {
+                    String tag = FORMAT_TAGS[i];
+                    int space = tag.indexOf(' ');
+                    sb.append("</").append(space < 0 ? tag : tag.substring(0, space)).append('>');
+                }
+            }
+            if (color >= 0) {
+                sb.append("</font>");
+            }
+        }
+        return sb.toString();
+    }
+
+    /** 样式变化时先重置再设置新样式，有样式时末尾重置，避免影响之后的输出 */
+    private static String toAnsi(Motd motd) {
+        StringBuilder sb = new StringBuilder();
+        boolean styled = false;
+        for (int r = 0; r < motd.size(); r++) {
+            int color = motd.color(r);
+            int flags = motd.flags(r);
+            if (styled) {
+                sb.append(ANSI_RESET);
+            }
+            styled = false;
+            if (color >= Motd.HEX) {
+                sb.append("\u001B[38;2;").append((color >> 16) & 0xFF).append(';')
+                        .append((color >> 8) & 0xFF).append(';').append(color & 0xFF).append('m');
+                styled = true;
+            } else if (color >= 0) {
+                sb.append("\u001B[").append(ANSI_COLORS[color]).append('m');
+                styled = true;
+            }
+            for (int i = 0; i < ANSI_FORMATS.length; i++) {
+                if ((flags & (1 << i)) != 0 && ANSI_FORMATS[i] != 0) {
+                    sb.append("\u001B[").append(ANSI_FORMATS[i]).append('m');
+                    styled = true;
+                }
+            }
+            appendAnsi(sb, motd.text(r));
+        }
+        if (styled) {
+            sb.append(ANSI_RESET);
+        }
+        return sb.toString();
+    }
+
+    /** 去掉控制字符（服务器文本中的 ESC 等不能直接写到终端），保留换行和制表符 */
+    private static void appendAnsi(StringBuilder sb, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\n' || c == '\t' || (c >= 0x20 && c != 0x7F)) sb.append(c);
+        }
+    }
+
+    private static void appendHtml(StringBuilder sb, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '&' -> sb.append("&amp;");
+                case '<' -> sb.append("&lt;");
+                case '>' -> sb.append("&gt;");
+                case '"' -> sb.append("&quot;");
+                case '\'' -> sb.append("&#x27;");
+                case '\n' -> sb.append("<br>");
+                default -> {
+                    if (c == '\t' || (c >= 0x20 && c != 0x7F)) sb.append(c);
+                }
+            }
+        }
+    }
+
+    private static String toJson(Motd motd) {
+        try (JsonWriter w = JsonWriter.borrow()) {
+            w.beginObject().name("text").value("").name("extra").beginArray();
+            for (int r = 0; r < motd.size(); r++) {
+                int color = motd.color(r);
+                int flags = motd.flags(r);
+                w.beginObject().name("text").value(motd.text(r));
+                if (color >= Motd.HEX) {
+                    w.name("color").value(colorHex(color));
+                } else if (color >= 0) {
+                    w.name("color").value(Motd.NAMES[color]);
+                }
+                for (int i = 0; i < Motd.FORMAT_FIELDS.length; i++) {
+                    if ((flags & (1 << i)) != 0) w.name(Motd.FORMAT_FIELDS[i]).value(true);
+                }
+                w.endObject();
+            }
+            w.endArray().endObject();
+            return new String(w.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String colorHex(int color) {
+        if (color < Motd.HEX) return RGB[color];
+        char[] hex = new char[7];
+        hex[0] = '#';
+        for (int i = 1, shift = 20; shift >= 0; i++, shift -= 4) {
+            hex[i] = Character.toUpperCase(Character.forDigit((color >> shift) & 0xF, 16));
+        }
+        return new String(hex);
+    }
+}
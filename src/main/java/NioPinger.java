@@ -0,0 +1,501 @@
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于 java.nio 的非阻塞 Server List Ping
+ * 少量 selector 线程即可同时维持大量进行中的 ping：
+ * 连接 → 握手 + 状态请求 → 读取状态 JSON → ping → pong
+ */
+public class NioPinger implements Pinger {
+
+    /** 握手包中的协议版本（与 MinecraftPinger 一致） */
+    private static final int PROTOCOL_VERSION = 765;
+    /** 状态包大小上限，防止恶意服务器返回超大数据 */
+    private static final int MAX_PACKET_BYTES = 2 << 20;
+    /** 超时检查间隔（毫秒） */
+    private static final long SWEEP_INTERVAL_MILLIS = 50;
+    /** select 连续失败时的最长退避时间（毫秒） */
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+
+    /**
+     * selector 线程之外的工作在虚拟线程中进行：
+     * - DNS 解析（getaddrinfo 本身不可中断，超时后放弃结果）
+     * - 收到响应后的解码（状态 JSON 解析、MOTD 解析、图标 base64 解码和 SHA-256），不拖慢同一 selector 上的其他连接
+     */
+    private static final ExecutorService WORKERS = Executors.newVirtualThreadPerTaskExecutor();
+
+    private static volatile NioPinger shared;
+
+    private final EventLoop[] loops;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    /**
+     * @param threads selector 线程数
+     */
+    public NioPinger(int threads) throws IOException {
+        this.loops = new EventLoop[threads];
+        for (int i = 0; i < threads; i++) {
+            loops[i] = new EventLoop();
+            Thread thread = new Thread(loops[i], "nio-pinger-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /** 进程内共享的实例 */
+    static NioPinger shared() {
+        NioPinger p = shared;
+        if (p == null) {
+            synchronized (NioPinger.class) {
+                p = shared;
+                if (p == null) {
+                    int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+                    try {
+                        shared = p = new NioPinger(threads);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * 状态 JSON 解析、MOTD 转换和图标哈希在收到状态后才第一次用到，冷启动时类加载和初始化合计上百毫秒
+     * 放到后台的守护线程上，与连接、握手和等待服务器响应同时进行
+     */
+    @Override
+    public void warmUp() {
+        Thread.ofPlatform().daemon().name("nio-pinger-warmup").start(() -> {
+            JsonElement description = JsonParser.parseString("{\"description\":{\"text\":\"\"}}")
+                    .getAsJsonObject().get("description");
+            Motd.parse(description.toString()).rendered();
+            FaviconStore.warmUp();
+        });
+    }
+
+    /**
+     * 主机名的 DNS（A/AAAA）解析在虚拟线程中进行，同样受总预算限制：到期未完成则返回超时
+     * 取消返回的 future 会关闭进行中的连接
+     */
+    @Override
+    public CompletableFuture<PingStatus> pingAsync(String host, int port, Deadline deadline) {
+        CompletableFuture<PingStatus> future = new CompletableFuture<>();
+        if (deadline.isExpired()) {
+            future.complete(PingStatus.timeout("Timed out"));
+            return future;
+        }
+        Metrics.NIO_SESSIONS.increment();
+        future.whenComplete((status, e) -> Metrics.NIO_SESSIONS.decrement());
+        if (Addresses.isIpLiteral(host)) {
+            // IP 字面量不查询 DNS，直接在调用线程中构造
+            connect(host, port, new InetSocketAddress(host, port), deadline, future);
+            return future;
+        }
+        CompletableFuture.supplyAsync(() -> new InetSocketAddress(host, port), WORKERS)
+                .orTimeout(deadline.remainingMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((address, e) -> {
+                    if (e == null) {
+                        connect(host, port, address, deadline, future);
+                    } else if (e instanceof TimeoutException) {
+                        future.complete(PingStatus.timeout("DNS lookup timed out"));
+                    } else {
+                        future.complete(PingStatus.offline("Unknown host: " + host));
+                    }
+                });
+        return future;
+    }
+
+    private void connect(String host, int port, InetSocketAddress address, Deadline deadline,
+                         CompletableFuture<PingStatus> future) {
+        if (future.isDone()) return; // 解析期间已被取消
+        if (address.isUnresolved()) {
+            future.complete(PingStatus.offline("Unknown host: " + host));
+            return;
+        }
+        if (deadline.isExpired()) {
+            future.complete(PingStatus.timeout("Timed out"));
+            return;
+        }
+        Session session = new Session(host, port, address, deadline, future);
+        loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)].submit(session);
+    }
+
+    /** DONE：已调用 succeed、fail 或 timeout，之后到达的数据和超时都忽略 */
+    private enum State { CONNECTING, SEND_STATUS, READ_STATUS, SEND_PING, READ_PONG, DONE }
+
+    /** 单次 ping 的状态，只在所属 selector 线程中访问；succeed 之后 statusJson 交给解码线程，不再改动 */
+    private final class Session {
+        final String host;
+        final int port;
+        final InetSocketAddress address;
+        final Deadline budget;
+        final CompletableFuture<PingStatus> future;
+
+        SocketChannel channel;
+        State state = State.CONNECTING;
+        long deadline;
+        long startedAt;
+        long connectedAt;
+        long connectMillis;
+        long pingSentAt;
+        ByteBuffer out;
+        ByteBuffer in = ByteBuffer.allocate(4096);
+
+        /** 状态包中的原始 JSON，在 WORKERS 中解析 */
+        String statusJson;
+
+        Session(String host, int port, InetSocketAddress address, Deadline budget,
+                CompletableFuture<PingStatus> future) {
+            this.host = host;
+            this.port = port;
+            this.address = address;
+            this.budget = budget;
+            this.future = future;
+        }
+
+        void start(Selector selector) throws IOException {
+            startedAt = System.nanoTime();
+            deadline = System.currentTimeMillis() + budget.connectMillis();
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            if (channel.connect(address)) {
+                SelectionKey key = channel.register(selector, 0, this);
+                onConnected(key);
+            } else {
+                channel.register(selector, SelectionKey.OP_CONNECT, this);
+            }
+        }
+
+        void handle(SelectionKey key) throws IOException {
+            if (key.isConnectable()) {
+                if (channel.finishConnect()) {
+                    onConnected(key);
+                }
+                return;
+            }
+            if (key.isWritable()) {
+                channel.write(out);
+                if (!out.hasRemaining()) {
+                    state = state == State.SEND_STATUS ? State.READ_STATUS : State.READ_PONG;
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+                return;
+            }
+            if (key.isReadable()) {
+                if (!in.hasRemaining()) {
+                    grow();
+                }
+                if (channel.read(in) < 0) {
+                    if (state == State.READ_PONG) {
+                        // 部分服务器不回应 ping，用连接耗时作为延迟
+                        succeed(connectMillis);
+                    } else {
+                        fail("Connection closed by server");
+                    }
+                    return;
+                }
+                readPackets(key);
+            }
+        }
+
+        private void onConnected(SelectionKey key) {
+            connectedAt = System.nanoTime();
+            Metrics.CONNECT.observeNanos(connectedAt - startedAt);
+            connectMillis = (connectedAt - startedAt) / 1_000_000;
+            deadline = System.currentTimeMillis() + budget.readMillis();
+            out = handshakeAndStatusRequest(host, port);
+            state = State.SEND_STATUS;
+            key.interestOps(SelectionKey.OP_WRITE);
+        }
+
+        private void readPackets(SelectionKey key) throws IOException {
+            int needed = 0;
+            in.flip();
+            try {
+                while (state != State.DONE) {
+                    int start = in.position();
+                    int length = readVarInt(in);
+                    if (length == -1) break; // 长度还没读全
+                    if (length <= 0 || length > MAX_PACKET_BYTES) {
+                        throw new IOException("Bad packet length: " + length);
+                    }
+                    if (in.remaining() < length) {
+                        // 包还没收全，回到包头等待更多数据
+                        needed = length + 5;
+                        in.position(start);
+                        break;
+                    }
+                    int end = in.position() + length;
+                    int packetId = readVarInt(in);
+                    onPacket(key, packetId, in, end);
+                    in.position(end);
+                }
+            } finally {
+                if (state != State.DONE) {
+                    in.compact();
+                }
+            }
+            if (needed > in.capacity()) {
+                ensureCapacity(needed);
+            }
+        }
+
+        private void onPacket(SelectionKey key, int packetId, ByteBuffer packet, int end) throws IOException {
+            if (state == State.READ_STATUS && packetId == 0x00) {
+                int length = readVarInt(packet);
+                if (length < 0 || packet.position() + length > end) {
+                    throw new IOException("Bad status string");
+                }
+                statusJson = new String(packet.array(), packet.position(), length, StandardCharsets.UTF_8);
+
+                // 发送 ping，测量往返延迟
+                out = ByteBuffer.allocate(10);
+                out.put((byte) 9).put((byte) 0x01).putLong(System.currentTimeMillis()).flip();
+                pingSentAt = System.nanoTime();
+                state = State.SEND_PING;
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else if (state == State.READ_PONG && packetId == 0x01) {
+                succeed((System.nanoTime() - pingSentAt) / 1_000_000);
+            } else {
+                throw new IOException("Unexpected packet 0x" + Integer.toHexString(packetId));
+            }
+        }
+
+        private void grow() {
+            ensureCapacity(in.capacity() * 2);
+        }
+
+        /** 扩容读缓冲区（写模式下调用） */
+        private void ensureCapacity(int capacity) {
+            if (capacity <= in.capacity()) return;
+            ByteBuffer bigger = ByteBuffer.allocate(Math.min(capacity, MAX_PACKET_BYTES + 5));
+            in.flip();
+            bigger.put(in);
+            in = bigger;
+        }
+
+        /** selector 线程只保留原始 JSON，解析和解码交给 WORKERS */
+        void succeed(long ping) {
+            if (state == State.DONE) return;
+            state = State.DONE;
+            close();
+            Metrics.STATUS.observeSince(connectedAt);
+            WORKERS.execute(() -> {
+                if (future.isDone()) return; // 已被取消
+                try {
+                    future.complete(decode(ping));
+                } catch (RuntimeException e) {
+                    // JSON 格式错误或缺少 version、players 字段
+                    future.complete(PingStatus.offline("Bad status response: " + e.getMessage()));
+                }
+            });
+        }
+
+        private PingStatus decode(long ping) {
+            JsonObject root = JsonParser.parseString(statusJson).getAsJsonObject();
+            JsonObject versionObj = root.getAsJsonObject("version");
+            JsonObject players = root.getAsJsonObject("players");
+            // description 可以是字符串、对象或数组（组件列表），缺失时为空
+            JsonElement description = root.get("description");
+            String rawMotd;
+            if (description == null || description.isJsonNull()) {
+                rawMotd = "";
+            } else if (description.isJsonPrimitive()) {
+                rawMotd = description.getAsString();
+            } else {
+                rawMotd = description.toString();
+            }
+            // 图标只保留内容哈希，相同图标不重复解码
+            JsonElement icon = root.get("favicon");
+            String faviconHash = FaviconStore.put(icon != null && icon.isJsonPrimitive() ? icon.getAsString() : null);
+            return new PingStatus(versionObj.get("name").getAsString(), versionObj.get("protocol").getAsInt(),
+                    players.get("online").getAsInt(), players.get("max").getAsInt(),
+                    ping, rawMotd, faviconHash);
+        }
+
+        void fail(String reason) {
+            if (state == State.DONE) return;
+            state = State.DONE;
+            close();
+            future.complete(PingStatus.offline(reason));
+        }
+
+        void timeout() {
+            if (state == State.DONE) return;
+            State at = state;
+            state = State.DONE;
+            close();
+            future.complete(PingStatus.timeout(at == State.CONNECTING ? "Connect timed out" : "Read timed out"));
+        }
+
+        void close() {
+            if (channel != null) {
+                try {
+                    channel.close(); // 同时取消 SelectionKey
+                } catch (IOException ignored) {}
+            }
+        }
+    }
+
+    private final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<Session> pending = new ConcurrentLinkedQueue<>();
+
+        EventLoop() throws IOException {
+            this.selector = Selector.open();
+        }
+
+        void submit(Session session) {
+            pending.add(session);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            long nextSweep = System.currentTimeMillis() + SWEEP_INTERVAL_MILLIS;
+            int failures = 0;
+            while (true) {
+                try {
+                    selector.select(SWEEP_INTERVAL_MILLIS);
+                    failures = 0;
+                } catch (IOException e) {
+                    // 持续失败时不能空转：进行中的 ping 全部失败，退避后重试，同一轮失败只提示一次
+                    if (failures == 0) {
+                        System.err.println(Main.i18n().getString("app.error.selector") + e.getMessage());
+                    }
+                    failAll("Connection failed: " + e.getMessage());
+                    try {
+                        Thread.sleep(Math.min(MAX_BACKOFF_MILLIS, SWEEP_INTERVAL_MILLIS << Math.min(failures++, 10)));
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
+                    continue;
+                }
+
+                Session session;
+                while ((session = pending.poll()) != null) {
+                    if (session.future.isDone()) continue; // 排队期间已被取消
+                    try {
+                        session.start(selector);
+                    } catch (IOException | RuntimeException e) {
+                        session.fail("Connection failed: " + e.getMessage());
+                    }
+                }
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    Session s = (Session) key.attachment();
+                    try {
+                        if (key.isValid()) {
+                            s.handle(key);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        s.fail("Connection failed: " + e.getMessage());
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+                if (now >= nextSweep) {
+                    nextSweep = now + SWEEP_INTERVAL_MILLIS;
+                    for (SelectionKey key : selector.keys()) {
+                        Session s = (Session) key.attachment();
+                        if (s == null) continue;
+                        if (s.future.isDone()) {
+                            s.close(); // 调用方已取消
+                        } else if (now > s.deadline) {
+                            s.timeout();
+                        }
+                    }
+                }
+            }
+        }
+
+        /** 排队中和已注册的 ping 全部以失败结束 */
+        private void failAll(String reason) {
+            Session session;
+            while ((session = pending.poll()) != null) {
+                session.fail(reason);
+            }
+            for (SelectionKey key : selector.keys()) {
+                Session s = (Session) key.attachment();
+                if (s != null) {
+                    s.fail(reason);
+                }
+            }
+        }
+    }
+
+    /** 握手包（next state = 1 状态）+ 状态请求包 */
+    private static ByteBuffer handshakeAndStatusRequest(String host, int port) {
+        byte[] hostBytes = host.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = ByteBuffer.allocate(1 + 5 + 5 + hostBytes.length + 2 + 1);
+        body.put((byte) 0x00);
+        writeVarInt(body, PROTOCOL_VERSION);
+        writeVarInt(body, hostBytes.length);
+        body.put(hostBytes);
+        body.putShort((short) port);
+        writeVarInt(body, 1);
+        body.flip();
+
+        ByteBuffer buf = ByteBuffer.allocate(5 + body.remaining() + 2);
+        writeVarInt(buf, body.remaining());
+        buf.put(body);
+        buf.put((byte) 1).put((byte) 0x00); // 状态请求：长度 1，包 ID 0
+        buf.flip();
+        return buf;
+    }
+
+    private static void writeVarInt(ByteBuffer buf, int value) {
+        while ((value & ~0x7F) != 0) {
+            buf.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buf.put((byte) value);
+    }
+
+    /**
+     * 读取 VarInt
+     * @return 数据不完整时返回 -1 并恢复 position
+     */
+    private static int readVarInt(ByteBuffer buf) throws IOException {
+        int start = buf.position();
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (!buf.hasRemaining()) {
+                buf.position(start);
+                return -1;
+            }
+            byte b = buf.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("VarInt too big");
+    }
+}
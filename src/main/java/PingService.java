@@ -0,0 +1,160 @@
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 查询流水线：结果缓存 → 合并并发请求 → 目标主机限速 → 并发上限 → queryServerResult
+ * server 模式下所有接口都通过这里发起 ping
+ */
+public class PingService {
+
+    private final Config config;
+    /** 限制同时进行中的 ping 数量，超出部分排队或拒绝 */
+    private final Semaphore inFlight;
+    /** 结果缓存：相同服务器在 TTL 内不再重复 ping */
+    private final ResultCache cache;
+    /** 同一主机的 ping 频率和并发限制 */
+    private final TargetThrottle throttle;
+    /** 同一服务器的并发查询只 ping 一次 */
+    private final SingleFlight<Main.HostPort, ServerResult> flights = new SingleFlight<>();
+    /** 关注列表：定时刷新的服务器直接返回最近结果 */
+    private volatile WatchRegistry watches;
+    /** 每次实际 ping 的结果写入历史记录，null 表示不记录 */
+    private volatile HistoryStore history;
+    /** 每次实际 ping 的结果计入分级汇总，null 表示不汇总 */
+    private volatile HistoryRollup rollup;
+    /** 写历史正在连续失败：只在开始失败时提示一次，成功写入后恢复 */
+    private final AtomicBoolean historyFailing = new AtomicBoolean();
+
+    public PingService(Config config) {
+        this.config = config;
+        this.inFlight = new Semaphore(config.maxInFlight);
+        this.throttle = new TargetThrottle(config.targetConcurrency, config.targetIntervalMillis);
+        this.cache = new ResultCache(config.cacheSize, config.cacheTtlMillis, config.cacheStaleMillis,
+                hp -> ping(hp, config.newDeadline()));
+
+        Metrics.gauge("mcserverinfo_pings_in_flight", "Pings holding a slot",
+                () -> config.maxInFlight - inFlight.availablePermits());
+        Metrics.gauge("mcserverinfo_ping_queue_depth", "Requests waiting for a ping slot",
+                inFlight::getQueueLength);
+        Metrics.gauge("mcserverinfo_coalesced_flights", "Distinct servers with a ping in flight",
+                flights::size);
+    }
+
+    /**
+     * 查询服务器状态，优先使用缓存
+     * @param deadline 排队、等待合并请求和 ping 共用的时间预算
+     * @throws RejectedExecutionException 并发 ping 已达上限且排队超时
+     * @throws DeadlineExceededException 等待其他请求发起的 ping 超时
+     * @throws RateLimitedException 目标主机被限速且没有缓存数据
+     */
+    public ServerResult query(Main.HostPort hp, Deadline deadline)
+            throws RejectedExecutionException, DeadlineExceededException, RateLimitedException {
+        WatchRegistry w = watches;
+        if (w != null) {
+            ServerResult latest = w.latest(hp);
+            if (latest != null) {
+                Metrics.RESULT_CACHE.increment("watch");
+                return latest;
+            }
+        }
+
+        // 命中缓存（包括后台刷新中的旧值）直接返回，不占用 ping 许可
+        ServerResult cached = cache.get(hp);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            return ping(hp, deadline);
+        } catch (RateLimitedException e) {
+            // 限速时有旧数据就返回旧数据
+            ServerResult old = cache.peek(hp);
+            if (old == null) throw e;
+            Metrics.RESULT_CACHE.increment("throttled");
+            return old;
+        }
+    }
+
+    /** 绕过缓存读取，直接发起（合并后的）ping，并写回缓存 */
+    ServerResult ping(Main.HostPort hp, Deadline deadline) throws RejectedExecutionException, RateLimitedException {
+        return flights.run(hp, () -> {
+            TargetThrottle.Slot slot = throttle.acquire(hp.host, deadline.remainingMillis());
+            try {
+                acquire(deadline);
+                try {
+                    ServerResult result = Main.queryServerResult(hp.host, hp.port, deadline);
+                    // 超时结果只代表本次请求的时间预算不够，不写入缓存
+                    if (!result.isTimedOut()) {
+                        cache.put(hp, result);
+                    }
+                    record(hp, result);
+                    return result;
+                } finally {
+                    inFlight.release();
+                }
+            } finally {
+                throttle.release(slot);
+            }
+        }, deadline.remainingMillis(), PingService::shareable);
+    }
+
+    /**
+     * 超时结果和排队、限速等待被拒绝只说明发起者自己的时间预算不够，
+     * 不交给合并进来的其他请求，它们在自己的剩余时间内重新发起
+     */
+    private static boolean shareable(ServerResult result, Throwable error) {
+        if (error != null) {
+            return !(error instanceof RejectedExecutionException || error instanceof RateLimitedException);
+        }
+        return !result.isTimedOut();
+    }
+
+    void setWatches(WatchRegistry watches) {
+        this.watches = watches;
+    }
+
+    void setHistory(HistoryStore history) {
+        this.history = history;
+    }
+
+    void setRollup(HistoryRollup rollup) {
+        this.rollup = rollup;
+    }
+
+    private void record(Main.HostPort hp, ServerResult result) {
+        HistoryRollup r = rollup;
+        if (r != null) {
+            r.record(hp, System.currentTimeMillis(), result.status);
+        }
+        HistoryStore h = history;
+        if (h == null) return;
+        try {
+            h.record(hp, result);
+            if (historyFailing.get()) historyFailing.set(false);
+        } catch (RuntimeException e) {
+            // 写历史失败不影响查询结果；磁盘满等持续的错误不逐条输出
+            if (historyFailing.compareAndSet(false, true)) {
+                System.err.println(Main.i18n().getString("app.error.historyWrite") + e.getMessage());
+            }
+        }
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    private void acquire(Deadline deadline) {
+        boolean acquired;
+        try {
+            long wait = Math.min(config.queueTimeoutMillis, deadline.remainingMillis());
+            acquired = inFlight.tryAcquire(wait, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            throw new RejectedExecutionException("Server busy, try again later");
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * 一次 Server List Ping 的结果（与 MinecraftPinger 提供的字段一致）
+ */
+public class PingStatus {
+    public final boolean online;
+    public final String version;
+    public final int protocol;
+    public final int playersOnline;
+    public final int maxPlayers;
+    /** 延迟（毫秒） */
+    public final long ping;
+    /** 原始 MOTD：description 为对象时是 JSON 文本，否则为纯字符串 */
+    public final String rawMotd;
+    /** 解析后的 MOTD（按原始内容驻留，相同 MOTD 的结果共享同一个实例），离线时为空 */
+    final Motd motd;
+    /** 服务器图标的内容哈希（FaviconStore），没有图标时为 null */
+    public final String favicon;
+    /** 图标的 PNG 字节：只为保持引用，结果存活期间图标即使被 FaviconStore 淘汰也能取回 */
+    @SuppressWarnings("unused")
+    private final byte[] faviconPng;
+    /** 离线原因，在线时为 null */
+    public final String error;
+    /** 是否因超时而失败 */
+    public final boolean timedOut;
+
+    public PingStatus(String version, int protocol, int playersOnline, int maxPlayers,
+                      long ping, String rawMotd, String favicon) {
+        this.online = true;
+        this.version = version;
+        this.protocol = protocol;
+        this.playersOnline = playersOnline;
+        this.maxPlayers = maxPlayers;
+        this.ping = ping;
+        this.rawMotd = rawMotd;
+        this.motd = Motd.of(rawMotd);
+        this.favicon = favicon;
+        this.faviconPng = FaviconStore.pin(favicon);
+        this.error = null;
+        this.timedOut = false;
+    }
+
+    private PingStatus(String error, boolean timedOut) {
+        this.online = false;
+        this.version = null;
+        this.protocol = 0;
+        this.playersOnline = 0;
+        this.maxPlayers = 0;
+        this.ping = -1;
+        this.rawMotd = null;
+        this.motd = Motd.EMPTY;
+        this.favicon = null;
+        this.faviconPng = null;
+        this.error = error;
+        this.timedOut = timedOut;
+    }
+
+    public static PingStatus offline(String error) {
+        return new PingStatus(error, false);
+    }
+
+    public static PingStatus timeout(String error) {
+        return new PingStatus(error, true);
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Server List Ping 实现的统一接口
+ * - NioPinger：基于 java.nio 的非阻塞实现（默认）
+ * - LegacyPinger：包装 low.citory.MinecraftPinger 的阻塞实现（备用）
+ */
+public interface Pinger {
+
+    /**
+     * 异步 ping，不会抛出异常：失败时返回 online=false 的结果，超时返回 timedOut=true 的结果
+     * @param deadline 连接 / 读取 / 总超时
+     */
+    CompletableFuture<PingStatus> pingAsync(String host, int port, Deadline deadline);
+
+    default CompletableFuture<PingStatus> pingAsync(String host, int port) {
+        return pingAsync(host, port, Deadline.defaults());
+    }
+
+    /**
+     * 同步 ping，阻塞到完成
+     * @throws CancellationException 等待期间线程被中断（如 GUI 取消查询）：同时取消进行中的 ping
+     */
+    default PingStatus ping(String host, int port, Deadline deadline) {
+        CompletableFuture<PingStatus> future = pingAsync(host, port, deadline);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted");
+        } catch (ExecutionException e) {
+            // pingAsync 约定不以异常结束，这里只是兜底
+            return PingStatus.offline("Connection failed: " + e.getCause().getMessage());
+        }
+    }
+
+    default PingStatus ping(String host, int port) {
+        return ping(host, port, Deadline.defaults());
+    }
+
+    /**
+     * 短命的进程（-c）在开始查询前调用：在后台初始化收到响应后才用到的部分，与连接和等待重叠
+     * 默认不做任何事
+     */
+    default void warmUp() {
+    }
+
+    /**
+     * 根据名称创建实现
+     * @param engine nio 或 legacy
+     * @throws IllegalArgumentException 未知名称
+     */
+    static Pinger create(String engine) throws IllegalArgumentException {
+        switch (engine) {
+            case "nio":
+                return NioPinger.shared();
+            case "legacy":
+                return new LegacyPinger();
+            default:
+                throw new IllegalArgumentException(engine);
+        }
+    }
+}
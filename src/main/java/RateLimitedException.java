@@ -0,0 +1,25 @@
+/**
+ * 请求被限流（客户端请求过快，或目标服务器的 ping 过于频繁）
+ */
+public class RateLimitedException extends RuntimeException {
+    private final long retryAfterMillis;
+
+    public RateLimitedException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /** 建议的重试等待时间（毫秒） */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /** Retry-After 头的秒数（向上取整，至少 1 秒） */
+    public long getRetryAfterSeconds() {
+        return toSeconds(retryAfterMillis);
+    }
+
+    static long toSeconds(long millis) {
+        return Math.max(1, (millis + 999) / 1000);
+    }
+}
@@ -0,0 +1,117 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * 查询结果缓存（按解析后的 HostPort 作为 key）
+ * - ttl 内：直接返回缓存
+ * - ttl ~ ttl+stale 之间：立即返回旧值，同时在后台刷新一次（stale-while-revalidate）
+ * - 超过 ttl+stale 或不存在：返回 null，由调用方同步查询后 put
+ * 超过容量时淘汰最久未访问的条目（LRU）
+ */
+public class ResultCache {
+
+    private static class Entry {
+        final ServerResult result;
+        final long loadedAt;
+        final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        Entry(ServerResult result, long loadedAt) {
+            this.result = result;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final long ttlMillis;
+    private final long staleMillis;
+    private final Function<Main.HostPort, ServerResult> loader;
+    private final LinkedHashMap<Main.HostPort, Entry> entries;
+
+    public ResultCache(int maxEntries, long ttlMillis, long staleMillis,
+                       Function<Main.HostPort, ServerResult> loader) {
+        this.ttlMillis = ttlMillis;
+        this.staleMillis = staleMillis;
+        this.loader = loader;
+        // accessOrder = true → 按访问顺序排列，removeEldestEntry 即 LRU
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Main.HostPort, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /** ttl 为 0 表示不缓存 */
+    public boolean isEnabled() {
+        return ttlMillis > 0;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * 读取缓存
+     * @return 新鲜或可容忍的旧值；没有可用值时返回 null
+     */
+    public ServerResult get(Main.HostPort key) {
+        if (!isEnabled()) return null;
+
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            Metrics.RESULT_CACHE.increment("miss");
+            return null;
+        }
+
+        long age = System.currentTimeMillis() - entry.loadedAt;
+        if (age <= ttlMillis) {
+            Metrics.RESULT_CACHE.increment("hit");
+            return entry.result;
+        }
+        if (age <= ttlMillis + staleMillis) {
+            Metrics.RESULT_CACHE.increment("stale");
+            // 旧值仍可用，同一条目只触发一次后台刷新
+            if (entry.refreshing.compareAndSet(false, true)) {
+                Thread.startVirtualThread(() -> refresh(key, entry));
+            }
+            return entry.result;
+        }
+        Metrics.RESULT_CACHE.increment("expired");
+        return null;
+    }
+
+    /** 不论是否过期，返回仍在缓存中的结果（限流时用旧数据代替拒绝），不触发刷新 */
+    public ServerResult peek(Main.HostPort key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        return entry == null ? null : entry.result;
+    }
+
+    public void put(Main.HostPort key, ServerResult result) {
+        if (!isEnabled()) return;
+        synchronized (entries) {
+            entries.put(key, new Entry(result, System.currentTimeMillis()));
+        }
+    }
+
+    private void refresh(Main.HostPort key, Entry stale) {
+        try {
+            ServerResult result = loader.apply(key);
+            // 与 PingService.ping 相同：超时只说明这次的时间预算不够，不覆盖旧值
+            if (result.isTimedOut()) {
+                stale.refreshing.set(false);
+                return;
+            }
+            put(key, result);
+        } catch (Exception e) {
+            // 刷新失败时保留旧值，下次访问再试
+            stale.refreshing.set(false);
+        }
+    }
+}
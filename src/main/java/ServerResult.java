@@ -0,0 +1,171 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 一次查询的结构化结果
+ * text / JSON / HTML 三种表示都在第一次使用时才生成，之后复用（缓存命中时不再重复生成）
+ */
+public final class ServerResult {
+
+    /** 目标服务器；地址无法解析时为 null */
+    public final String host;
+    public final int port;
+    /** 原始输入地址，只在 host 为 null 时用于文本输出 */
+    public final String address;
+    public final PingStatus status;
+    /** 结果产生的时间（毫秒），用于计算 HTTP 缓存的剩余有效期 */
+    public final long createdAt = System.currentTimeMillis();
+
+    // 懒生成的表示，并发首次访问时可能重复生成，结果相同
+    private volatile String text;
+    private volatile byte[] jsonBytes;
+    private volatile String json;
+    private volatile String html;
+    private volatile String etag;
+
+    public ServerResult(String host, int port, PingStatus status) {
+        this.host = host;
+        this.port = port;
+        this.address = null;
+        this.status = status;
+    }
+
+    private ServerResult(String address, PingStatus status) {
+        this.host = null;
+        this.port = 0;
+        this.address = address;
+        this.status = status;
+    }
+
+    /** 地址解析失败、查询异常等没有目标服务器的结果 */
+    public static ServerResult failure(String address, String error) {
+        return new ServerResult(address, PingStatus.offline(error));
+    }
+
+    public boolean isOnline() {
+        return status.online;
+    }
+
+    public boolean isTimedOut() {
+        return status.timedOut;
+    }
+
+    /** 本地化的文本格式（CLI 输出） */
+    public String text() {
+        String t = text;
+        if (t == null) {
+            text = t = renderText();
+        }
+        return t;
+    }
+
+    /** UTF-8 编码的 JSON，可直接写入响应 */
+    public byte[] jsonBytes() {
+        byte[] b = jsonBytes;
+        if (b == null) {
+            try (JsonWriter w = JsonWriter.borrow()) {
+                writeJson(w);
+                jsonBytes = b = w.toByteArray();
+            }
+        }
+        return b;
+    }
+
+    public String json() {
+        String j = json;
+        if (j == null) {
+            json = j = new String(jsonBytes(), StandardCharsets.UTF_8);
+        }
+        return j;
+    }
+
+    /** HTTP ETag：JSON 内容的 64 位 FNV-1a 哈希，内容相同的结果 ETag 相同 */
+    public String etag() {
+        String e = etag;
+        if (e == null) {
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : jsonBytes()) {
+                hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+            }
+            etag = e = "\"" + Long.toHexString(hash) + "\"";
+        }
+        return e;
+    }
+
+    /** GUI 中显示的 HTML（MOTD 由 MotdFormatter 渲染，其余文本转义后显示） */
+    public String html() {
+        String h = html;
+        if (h == null) {
+            html = h = renderHtml();
+        }
+        return h;
+    }
+
+    private String renderText() {
+        if (host == null) {
+            return Main.i18n().getString("log.server") + address + " " + status.error + "\n";
+        }
+        if (status.timedOut) {
+            // 超时：与离线区分，方便调用方判断
+            return Main.i18n().getString("log.server") + host + ":" + port + Main.i18n().getString("log.timeout");
+        }
+        if (!status.online) {
+            return Main.i18n().getString("log.server") + host + ":" + port + Main.i18n().getString("log.offline");
+        }
+        return renderHeader() + Main.i18n().getString("result.motd") + status.motd.rendered().ansi + "\n";
+    }
+
+    /** 在线结果 MOTD 之前的几行 */
+    private String renderHeader() {
+        return Main.i18n().getString("result.version") + status.version + "\n"
+                + Main.i18n().getString("result.protocol") + status.protocol + "\n"
+                + Main.i18n().getString("result.players") + status.playersOnline + "/" + status.maxPlayers + "\n"
+                + Main.i18n().getString("result.ping") + status.ping + "ms" + "\n";
+    }
+
+    private String renderHtml() {
+        String body;
+        if (host != null && status.online) {
+            body = MotdFormatter.escapeHtml(renderHeader() + Main.i18n().getString("result.motd"))
+                    + status.motd.rendered().fragment;
+        } else {
+            body = MotdFormatter.escapeHtml(text());
+        }
+        return "<html><body style='font-family:sans-serif;'>" + body + "</body></html>";
+    }
+
+    private void writeJson(JsonWriter w) {
+        w.beginObject();
+        if (host == null) {
+            w.name("online").value(false)
+                    .name("error").value(status.error);
+            w.endObject();
+            return;
+        }
+
+        w.name("host").value(host)
+                .name("port").value(port)
+                .name("online").value(status.online);
+        if (status.timedOut) {
+            w.name("timedOut").value(true)
+                    .name("error").value(status.error);
+        } else if (!status.online) {
+            w.name("error").value("Server is offline or unreachable");
+        } else {
+            w.name("version").value(status.version)
+                    .name("protocol").value(status.protocol)
+                    .name("playersOnline").value(status.playersOnline)
+                    .name("maxPlayers").value(status.maxPlayers)
+                    .name("ping").value(status.ping)
+                    .name("motd");
+            if (status.motd.json) {
+                w.rawValue(status.rawMotd); // 已由 ChatComponentParser 完整校验，直接作为 JSON 对象或数组插入
+            } else {
+                w.value(status.rawMotd == null ? "" : status.rawMotd); // 作为字符串，写入时转义
+            }
+            if (status.favicon != null) {
+                w.name("favicon").value(status.favicon); // 只写哈希，图片通过 /api/favicon?hash= 获取
+            }
+        }
+        w.endObject();
+    }
+}
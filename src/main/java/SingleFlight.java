@@ -0,0 +1,93 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/**
+ * 合并同一 key 的并发请求（single-flight）
+ * 第一个调用者负责真正执行，期间到达的其他调用者等待并共享同一个结果（或同一个异常）
+ * 可以指定哪些结果不共享，此时等待者改为自己执行
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+    public V run(K key, Supplier<V> task) {
+        return run(key, task, -1);
+    }
+
+    /**
+     * @param waitMillis 等待其他调用者的结果时最多等待的时间，负数表示一直等待
+     * @throws DeadlineExceededException 等待超时（正在执行的查询不受影响）
+     */
+    public V run(K key, Supplier<V> task, long waitMillis) {
+        return run(key, task, waitMillis, (value, error) -> true);
+    }
+
+    /**
+     * @param shareable 判断其他调用者的结果（或异常）能否直接交给等待者；
+     *                  不能时（例如只是对方的时间预算不够）等待者在剩余时间内重新发起
+     * @throws DeadlineExceededException 等待超时（正在执行的查询不受影响）
+     */
+    public V run(K key, Supplier<V> task, long waitMillis, BiPredicate<? super V, ? super Throwable> shareable) {
+        long deadline = waitMillis < 0 ? Long.MAX_VALUE : System.currentTimeMillis() + waitMillis;
+        while (true) {
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            CompletableFuture<V> existing = flights.putIfAbsent(key, mine);
+            if (existing == null) {
+                return lead(key, mine, task);
+            }
+
+            V value = null;
+            ExecutionException failure = null;
+            try {
+                value = waitMillis < 0 ? existing.get()
+                        : existing.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                throw new DeadlineExceededException("Timed out");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DeadlineExceededException("Interrupted");
+            } catch (ExecutionException e) {
+                failure = e;
+            }
+            Throwable error = failure == null ? null : failure.getCause();
+            if (shareable.test(value, error) || System.currentTimeMillis() >= deadline) {
+                if (failure != null) throw rethrow(error, failure);
+                return value;
+            }
+        }
+    }
+
+    private V lead(K key, CompletableFuture<V> mine, Supplier<V> task) {
+        V value;
+        try {
+            value = task.get();
+        } catch (Throwable t) {
+            // 先移除再完成，被唤醒的等待者重新发起时不会再看到这次已结束的执行
+            flights.remove(key, mine);
+            mine.completeExceptionally(t);
+            throw t;
+        }
+        // 结束后立即移除，之后的请求重新发起（或命中缓存）
+        flights.remove(key, mine);
+        mine.complete(value);
+        return value;
+    }
+
+    /** 当前正在执行中的 key 数量 */
+    public int size() {
+        return flights.size();
+    }
+
+    /** 原样抛出任务中的非受检异常，受检异常包装后抛出 */
+    private static RuntimeException rethrow(Throwable cause, Exception wrapper) {
+        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+        if (cause instanceof Error) throw (Error) cause;
+        return new CompletionException(wrapper.getMessage(), cause);
+    }
+}
@@ -0,0 +1,254 @@
+import org.xbill.DNS.*;
+import org.xbill.DNS.Record;
+
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minecraft SRV 查询
+ * - 多个 SRV 前缀并行查询，按 SRV_PATTERNS 的顺序取第一个有效结果：
+ *   靠前的前缀查到记录即可返回，靠后的前缀须等靠前的都确认没有记录，其余查询取消
+ * - 同一前缀有多条记录时按 RFC 2782 选择：优先级数值最小的一组中按权重随机选取
+ * - 共享缓存：命中结果按记录 TTL 缓存，查不到的域名按 NEGATIVE_TTL 缓存
+ * - 同一域名的并发查询合并为一次
+ */
+public class SrvResolver {
+
+    private static final String[] SRV_PATTERNS = {
+            "_minecraft._tcp.%s",  // 标准 Minecraft SRV
+            "_mc._tcp.%s",         // 常见别名
+            "_game._tcp.%s"        // 可选扩展
+    };
+
+    /** 无 SRV 记录的域名缓存时间（秒） */
+    private static final long NEGATIVE_TTL_SECONDS = 60;
+    /** 查询出错（超时、网络错误）时的短缓存时间（秒），避免故障期间反复查询 */
+    private static final long ERROR_TTL_SECONDS = 5;
+    /** 记录 TTL 的上限（秒） */
+    private static final long MAX_TTL_SECONDS = 3600;
+    /** 缓存条目超过该数量时清理已过期条目 */
+    private static final int MAX_ENTRIES = 10000;
+
+    private static class Answer {
+        /** null 表示没有 SRV 记录 */
+        final Main.HostPort target;
+        final long ttlSeconds;
+
+        Answer(Main.HostPort target, long ttlSeconds) {
+            this.target = target;
+            this.ttlSeconds = ttlSeconds;
+        }
+    }
+
+    private static class CachedAnswer {
+        final Main.HostPort target;
+        final long expiresAt;
+
+        CachedAnswer(Main.HostPort target, long expiresAt) {
+            this.target = target;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final ConcurrentHashMap<String, CachedAnswer> cache = new ConcurrentHashMap<>();
+    private static final SingleFlight<String, CachedAnswer> flights = new SingleFlight<>();
+    private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /** 共享的 resolver，dnsjava 3 的 SimpleResolver 是线程安全的 */
+    private static volatile Resolver resolver;
+
+    private static Resolver resolver() throws UnknownHostException {
+        Resolver r = resolver;
+        if (r == null) {
+            synchronized (SrvResolver.class) {
+                r = resolver;
+                if (r == null) {
+                    resolver = r = new SimpleResolver();
+                }
+            }
+        }
+        return r;
+    }
+
+    /**
+     * 查询域名的 Minecraft SRV 记录
+     * @param domain 域名（调用方已排除 IP 和本地地址）
+     * @param deadline 超时后取消查询并视为没有 SRV 记录（不缓存）
+     * @return 成功则返回 HostPort，否则 null
+     */
+    public static Main.HostPort resolve(String domain, Deadline deadline) {
+        String key = domain.toLowerCase(Locale.ROOT);
+        CachedAnswer cached = cache.get(key);
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+            Metrics.SRV_CACHE.increment("hit");
+            return cached.target;
+        }
+        Metrics.SRV_CACHE.increment("miss");
+        if (deadline.isExpired()) {
+            return null;
+        }
+        try {
+            return flights.run(key, () -> lookupAndCache(key, deadline), deadline.remainingMillis()).target;
+        } catch (DeadlineExceededException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 直接写入一条缓存（不查询 DNS），用于已知的固定记录和离线基准测试
+     * @param target null 表示没有 SRV 记录
+     */
+    static void prime(String domain, Main.HostPort target, long ttlSeconds) {
+        cache.put(domain.toLowerCase(Locale.ROOT),
+                new CachedAnswer(target, System.currentTimeMillis() + ttlSeconds * 1000));
+    }
+
+    private static CachedAnswer lookupAndCache(String key, Deadline deadline) {
+        long start = System.nanoTime();
+        Answer answer = lookupParallel(key, deadline);
+        Metrics.SRV.observeSince(start);
+        CachedAnswer fresh = new CachedAnswer(answer.target,
+                System.currentTimeMillis() + answer.ttlSeconds * 1000);
+        if (answer.ttlSeconds > 0) {
+            if (cache.size() >= MAX_ENTRIES) {
+                long now = System.currentTimeMillis();
+                cache.values().removeIf(c -> c.expiresAt <= now);
+            }
+            cache.put(key, fresh);
+        }
+        return fresh;
+    }
+
+    private static Answer lookupParallel(String domain, Deadline deadline) {
+        ExecutorCompletionService<Answer> completion = new ExecutorCompletionService<>(executor);
+        List<Future<Answer>> futures = new ArrayList<>(SRV_PATTERNS.length);
+        for (String pattern : SRV_PATTERNS) {
+            String srvName = String.format(pattern, domain);
+            futures.add(completion.submit(() -> lookupOne(srvName)));
+        }
+
+        // 按前缀顺序记录已返回的结果，null 表示尚未返回
+        Answer[] answers = new Answer[futures.size()];
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                Future<Answer> done = completion.poll(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+                if (done == null) {
+                    return new Answer(firstTarget(answers), 0); // 超时：取已返回的最靠前的记录，不缓存
+                }
+                Answer answer;
+                try {
+                    answer = done.get();
+                } catch (ExecutionException e) {
+                    answer = new Answer(null, ERROR_TTL_SECONDS);
+                }
+                answers[futures.indexOf(done)] = answer;
+
+                for (Answer a : answers) {
+                    if (a == null) {
+                        break; // 靠前的前缀还没有返回，继续等待
+                    }
+                    if (a.target != null) {
+                        return a; // ✅ 按前缀顺序的第一个有效结果
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Answer(null, 0);
+        } finally {
+            // 已经有结果（或超时、被中断），取消仍在进行的查询
+            for (Future<Answer> f : futures) {
+                f.cancel(true);
+            }
+        }
+        // 所有前缀都没有记录
+        long ttl = NEGATIVE_TTL_SECONDS;
+        for (Answer a : answers) {
+            ttl = Math.min(ttl, a.ttlSeconds);
+        }
+        return new Answer(null, ttl);
+    }
+
+    private static Main.HostPort firstTarget(Answer[] answers) {
+        for (Answer a : answers) {
+            if (a != null && a.target != null) {
+                return a.target;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按 RFC 2782 从一组 SRV 记录中选出目标：只考虑优先级数值最小的记录，
+     * 其中按权重随机选取（权重为 0 的记录只有很小的机会被选中）
+     * @return 目标为 "." 表示服务不可用，返回 null
+     */
+    static SRVRecord select(Record[] records, Random random) {
+        List<SRVRecord> candidates = new ArrayList<>();
+        int priority = Integer.MAX_VALUE;
+        for (Record r : records) {
+            if (!(r instanceof SRVRecord srv)) continue;
+            if (srv.getPriority() < priority) {
+                priority = srv.getPriority();
+                candidates.clear();
+            }
+            if (srv.getPriority() == priority) {
+                // 权重为 0 的排在前面，与 RFC 2782 的选择过程一致
+                if (srv.getWeight() == 0) candidates.add(0, srv);
+                else candidates.add(srv);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        int total = 0;
+        for (SRVRecord srv : candidates) {
+            total += srv.getWeight();
+        }
+        int pick = random.nextInt(total + 1);
+        SRVRecord chosen = candidates.get(candidates.size() - 1);
+        int sum = 0;
+        for (SRVRecord srv : candidates) {
+            sum += srv.getWeight();
+            if (sum >= pick) {
+                chosen = srv;
+                break;
+            }
+        }
+        return chosen.getTarget().equals(Name.root) ? null : chosen;
+    }
+
+    private static Answer lookupOne(String srvName) throws Exception {
+        Lookup lookup = new Lookup(srvName, Type.SRV);
+        lookup.setResolver(resolver());
+        lookup.setCache(null); // 由本类统一缓存
+
+        Record[] records = lookup.run();
+        if (records != null && records.length > 0) {
+            SRVRecord srv = select(records, ThreadLocalRandom.current());
+            if (srv == null) {
+                return new Answer(null, Math.min(records[0].getTTL(), MAX_TTL_SECONDS));
+            }
+            String target = srv.getTarget().toString().replaceAll("\\.$", "");
+            long ttl = Math.min(srv.getTTL(), MAX_TTL_SECONDS);
+            return new Answer(new Main.HostPort(target, srv.getPort()), ttl);
+        }
+
+        int result = lookup.getResult();
+        if (result == Lookup.HOST_NOT_FOUND || result == Lookup.TYPE_NOT_FOUND) {
+            return new Answer(null, NEGATIVE_TTL_SECONDS);
+        }
+        return new Answer(null, ERROR_TTL_SECONDS);
+    }
+}
@@ -0,0 +1,103 @@
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按目标主机的礼貌限速：同一主机（不论端口）同时进行的 ping 数量上限，以及相邻两次 ping 的最小间隔
+ * - 间隔按预约方式分配：每次 ping 预约下一个可用时间点，等待时间超过调用方的预算则拒绝
+ * - 每个主机的状态只有两个原子变量，不加锁
+ */
+public class TargetThrottle {
+
+    /** 记录的主机超过该数量时清理空闲条目 */
+    private static final int MAX_TARGETS = 10_000;
+
+    static final class Slot {
+        final AtomicInteger active = new AtomicInteger();
+        /** 下一次 ping 最早的开始时间（System.nanoTime） */
+        final AtomicLong nextStart;
+
+        Slot(long now) {
+            nextStart = new AtomicLong(now);
+        }
+    }
+
+    private final int maxConcurrent;
+    private final long intervalNanos;
+    private final ConcurrentHashMap<String, Slot> slots = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxConcurrent 同一主机同时进行的 ping 上限
+     * @param intervalMillis 同一主机两次 ping 开始的最小间隔，0 表示不限制
+     */
+    public TargetThrottle(int maxConcurrent, long intervalMillis) {
+        this.maxConcurrent = maxConcurrent;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    }
+
+    /**
+     * 取得对主机发起一次 ping 的许可，必要时等待到预约的时间点
+     * @param maxWaitMillis 最多等待的时间，超过则拒绝
+     * @return 许可，ping 结束后必须调用 release
+     * @throws RateLimitedException 需要等待的时间超过 maxWaitMillis，或同时进行的 ping 已达上限
+     */
+    public Slot acquire(String host, long maxWaitMillis) throws RateLimitedException {
+        long now = System.nanoTime();
+        Slot slot = slot(host.toLowerCase(Locale.ROOT), now);
+
+        // 1. 预约开始时间
+        long start;
+        while (true) {
+            long next = slot.nextStart.get();
+            start = next - now > 0 ? next : now;
+            long waitNanos = start - now;
+            if (waitNanos > TimeUnit.MILLISECONDS.toNanos(maxWaitMillis)) {
+                throw limited(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            }
+            if (slot.nextStart.compareAndSet(next, start + intervalNanos)) break;
+        }
+        long waitNanos = start - now;
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw limited(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            }
+        }
+
+        // 2. 同时进行数量
+        while (true) {
+            int active = slot.active.get();
+            if (active >= maxConcurrent) {
+                throw limited(Math.max(1000, TimeUnit.NANOSECONDS.toMillis(intervalNanos)));
+            }
+            if (slot.active.compareAndSet(active, active + 1)) {
+                return slot;
+            }
+        }
+    }
+
+    public void release(Slot slot) {
+        slot.active.decrementAndGet();
+    }
+
+    private Slot slot(String key, long now) {
+        Slot slot = slots.get(key);
+        if (slot == null) {
+            if (slots.size() >= MAX_TARGETS) {
+                // 没有进行中的 ping 且预约时间已过的条目可以直接丢弃
+                slots.values().removeIf(s -> s.active.get() == 0 && s.nextStart.get() - now <= 0);
+            }
+            slot = slots.computeIfAbsent(key, k -> new Slot(now));
+        }
+        return slot;
+    }
+
+    private static RateLimitedException limited(long retryAfterMillis) {
+        Metrics.RATE_LIMITED.increment("target");
+        return new RateLimitedException("Target server is being pinged too often, try again later", retryAfterMillis);
+    }
+}
@@ -0,0 +1,249 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 关注的服务器列表 + 后台定时刷新
+ * - 每个服务器独立的刷新间隔，首次刷新时间随机分散，之后每次加 ±10% 抖动
+ * - 连续离线的服务器按 2^n 倍间隔退避（上限 MAX_BACKOFF_MILLIS）
+ * - /api 查询关注中的服务器时直接返回最近一次的结果（不超过 STALE_INTERVALS 个刷新间隔）
+ * - 刷新间隔不少于 MIN_INTERVAL_MILLIS，关注的服务器不超过 MAX_ENTRIES 个
+ */
+public class WatchRegistry {
+
+    /** 最短刷新间隔（毫秒） */
+    static final long MIN_INTERVAL_MILLIS = 1000;
+    /** 关注的服务器数量上限 */
+    static final int MAX_ENTRIES = 1000;
+    /** 最近结果超过这么多个刷新间隔没有更新（退避中或刷新卡住）时不再直接返回 */
+    private static final int STALE_INTERVALS = 2;
+    /** 离线退避的最长间隔（毫秒） */
+    static final long MAX_BACKOFF_MILLIS = 10 * 60_000;
+    /** 刷新间隔的抖动比例 */
+    private static final double JITTER = 0.1;
+    /** 并发 ping 已满时的重试延迟（毫秒） */
+    private static final long BUSY_RETRY_MILLIS = 1000;
+
+    static class Entry {
+        final String address;
+        final long intervalMillis;
+        volatile Main.HostPort hostPort;
+        volatile ServerResult latest;
+        volatile long updatedAt;
+        /** 连续离线次数 */
+        volatile int failures;
+        volatile ScheduledFuture<?> next;
+        volatile boolean removed;
+
+        Entry(String address, long intervalMillis, Main.HostPort hostPort) {
+            this.address = address;
+            this.intervalMillis = intervalMillis;
+            this.hostPort = hostPort;
+        }
+    }
+
+    /** 地址格式错误，address 为出错的地址 */
+    static class InvalidAddressException extends IllegalArgumentException {
+        final String address;
+
+        InvalidAddressException(String address, String message) {
+            super(message);
+            this.address = address;
+        }
+    }
+
+    private final PingService pings;
+    private final ConcurrentHashMap<String, Entry> byAddress = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Main.HostPort, Entry> byHostPort = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "watch-timer");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+
+    public WatchRegistry(PingService pings) {
+        this.pings = pings;
+    }
+
+    /**
+     * 添加关注的服务器（已存在则替换刷新间隔）
+     * @throws IllegalArgumentException 地址格式错误或刷新间隔过短
+     * @throws IllegalStateException 超过数量上限
+     */
+    public void add(String address, long intervalMillis) throws IllegalArgumentException, IllegalStateException {
+        addAll(List.of(address), intervalMillis);
+    }
+
+    /**
+     * 添加一组关注的服务器：先检查全部地址，任何一个出错则一个都不添加
+     * @throws InvalidAddressException 某个地址格式错误
+     * @throws IllegalArgumentException 刷新间隔过短
+     * @throws IllegalStateException 超过数量上限
+     */
+    public void addAll(List<String> addresses, long intervalMillis) throws IllegalArgumentException, IllegalStateException {
+        long[] intervals = new long[addresses.size()];
+        Arrays.fill(intervals, intervalMillis);
+        addAll(addresses, intervals);
+    }
+
+    private void addAll(List<String> addresses, long[] intervals) {
+        for (long interval : intervals) {
+            if (interval < MIN_INTERVAL_MILLIS) {
+                throw new IllegalArgumentException("Interval must be at least " + MIN_INTERVAL_MILLIS + " ms");
+            }
+        }
+        // 解析（可能查询 SRV）之前先粗查数量，避免为注定被拒绝的请求做大量查询
+        checkCapacity(addresses);
+        Main.HostPort[] parsed = new Main.HostPort[addresses.size()];
+        for (int i = 0; i < parsed.length; i++) {
+            String address = addresses.get(i);
+            try {
+                parsed[i] = Main.parseHostPort(address, pings.getConfig().newDeadline());
+            } catch (IllegalArgumentException e) {
+                throw new InvalidAddressException(address, e.getMessage());
+            }
+        }
+        synchronized (this) {
+            checkCapacity(addresses);
+            for (int i = 0; i < parsed.length; i++) {
+                put(addresses.get(i), intervals[i], parsed[i]);
+            }
+        }
+    }
+
+    /** 加入后的服务器数量超过上限时抛出 IllegalStateException（替换已有的不计入） */
+    private void checkCapacity(List<String> addresses) {
+        Set<String> added = new HashSet<>();
+        for (String address : addresses) {
+            if (!byAddress.containsKey(address)) added.add(address);
+        }
+        if (byAddress.size() + added.size() > MAX_ENTRIES) {
+            throw new IllegalStateException("Too many watched servers, limit is " + MAX_ENTRIES);
+        }
+    }
+
+    private void put(String address, long intervalMillis, Main.HostPort hp) {
+        Entry entry = new Entry(address, intervalMillis, hp);
+        Entry old = byAddress.put(address, entry);
+        if (old != null) {
+            cancel(old);
+            entry.latest = old.latest;
+            entry.updatedAt = old.updatedAt;
+        }
+        byHostPort.put(hp, entry);
+        // 首次刷新随机分散在一个间隔内，避免所有服务器同时被 ping；在此之前 /api 照常按需查询
+        schedule(entry, ThreadLocalRandom.current().nextLong(intervalMillis));
+    }
+
+    public boolean remove(String address) {
+        Entry entry = byAddress.remove(address);
+        if (entry == null) return false;
+        cancel(entry);
+        return true;
+    }
+
+    /** 关注中服务器的最近一次结果，没有或已过旧则返回 null（由调用方按需查询） */
+    public ServerResult latest(Main.HostPort hp) {
+        Entry entry = byHostPort.get(hp);
+        if (entry == null) return null;
+        ServerResult latest = entry.latest;
+        if (latest == null) return null;
+        long age = System.currentTimeMillis() - entry.updatedAt;
+        return age <= entry.intervalMillis * STALE_INTERVALS ? latest : null;
+    }
+
+    public List<Entry> entries() {
+        return new ArrayList<>(byAddress.values());
+    }
+
+    /**
+     * 从文件加载关注列表：每行 "地址 [刷新间隔秒]"，# 开头为注释
+     * @throws IllegalArgumentException 某一行格式错误（此时一个都不添加）
+     * @throws IllegalStateException 超过数量上限
+     */
+    public void load(Path file, long defaultIntervalMillis) throws IOException, IllegalArgumentException, IllegalStateException {
+        List<String> lines;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            lines = BatchRunner.readLines(reader);
+        }
+        List<String> addresses = new ArrayList<>(lines.size());
+        long[] intervals = new long[lines.size()];
+        for (String line : lines) {
+            String[] parts = line.split("\\s+");
+            intervals[addresses.size()] = parts.length > 1
+                    ? Config.parsePositive(parts[0], parts[1]) * 1000L
+                    : defaultIntervalMillis;
+            addresses.add(parts[0]);
+        }
+        addAll(addresses, intervals);
+    }
+
+    private void cancel(Entry entry) {
+        entry.removed = true;
+        ScheduledFuture<?> next = entry.next;
+        if (next != null) next.cancel(false);
+        byHostPort.remove(entry.hostPort, entry);
+    }
+
+    private void schedule(Entry entry, long delayMillis) {
+        if (entry.removed) return;
+        entry.next = timer.schedule(() -> workers.submit(() -> refresh(entry)), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void refresh(Entry entry) {
+        if (entry.removed) return;
+        try {
+            Deadline deadline = pings.getConfig().newDeadline();
+            // 重新解析地址（SRV 有缓存），记录可能已变化
+            Main.HostPort hp = Main.parseHostPort(entry.address, deadline);
+            if (!hp.equals(entry.hostPort)) {
+                byHostPort.remove(entry.hostPort, entry);
+                entry.hostPort = hp;
+                byHostPort.put(hp, entry);
+            }
+
+            ServerResult result = pings.ping(hp, deadline);
+            entry.latest = result;
+            entry.updatedAt = System.currentTimeMillis();
+            entry.failures = result.isOnline() ? 0 : entry.failures + 1;
+        } catch (RejectedExecutionException e) {
+            // 并发 ping 已满：稍后重试，不计入离线次数
+            schedule(entry, BUSY_RETRY_MILLIS);
+            return;
+        } catch (RateLimitedException e) {
+            // 目标主机限速：按建议时间重试，不计入离线次数
+            schedule(entry, Math.max(BUSY_RETRY_MILLIS, e.getRetryAfterMillis()));
+            return;
+        } catch (Exception e) {
+            entry.failures++;
+        }
+        schedule(entry, nextDelay(entry));
+    }
+
+    /** 下次刷新的延迟：离线退避 + 抖动 */
+    private static long nextDelay(Entry entry) {
+        long delay = entry.intervalMillis;
+        int shift = Math.min(entry.failures, 10);
+        if (shift > 0 && delay < MAX_BACKOFF_MILLIS) {
+            delay = Math.min(delay << shift, MAX_BACKOFF_MILLIS);
+        }
+        double jitter = 1 + (ThreadLocalRandom.current().nextDouble() * 2 - 1) * JITTER;
+        return Math.max(1, (long) (delay * jitter));
+    }
+}
@@ -0,0 +1,39 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AcceptEncodingTest {
+
+    @Test
+    void zeroQuality() {
+        assertTrue(Main.isZeroQuality("gzip;q=0", 5));
+        assertTrue(Main.isZeroQuality("gzip; q = 0.000 ", 5));
+        assertTrue(Main.isZeroQuality("gzip;Q=0.", 5));
+        assertFalse(Main.isZeroQuality("gzip;q=0.001", 5));
+        assertFalse(Main.isZeroQuality("gzip;q=1", 5));
+        assertFalse(Main.isZeroQuality("gzip;q=", 5));
+        assertFalse(Main.isZeroQuality("gzip;", 5));
+    }
+
+    /** 与替换前的 replace(" ", "").matches("q=0(\\.0*)?") 对照（只有小写 q） */
+    @Test
+    void agreesWithOldRegex() {
+        char[] alphabet = "q0.1 =;5".toCharArray();
+        Random random = new Random(1952);
+        for (int run = 0; run < 100_000; run++) {
+            char[] chars = new char[random.nextInt(10)];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+            String params = new String(chars);
+            boolean old = params.replace(" ", "").matches("q=0(\\.0*)?");
+            // 旧实现会删除数字之间的空格（"q=0 0"），新实现不接受
+            if (params.trim().matches(".*[0-9.] +[0-9.].*")) continue;
+            assertEquals(old, Main.isZeroQuality("gzip;" + params, 5), params);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 与替换前的正则（Main.isValidIP / parseHostPort 中使用）对照的随机测试
+ * 新实现有意更严格：IPv4 每段 0-255，IPv6 另外接受 :: 压缩、内嵌 IPv4 和 %zone
+ */
+class AddressesTest {
+
+    private static final Pattern OLD_IPV4 = Pattern.compile("\\d+\\.\\d+\\.\\d+\\.\\d+");
+    private static final Pattern OLD_IPV6 = Pattern.compile("([0-9a-fA-F]{1,4}:){7}[0-9a-fA-F]{1,4}");
+    private static final Pattern OLD_PORT = Pattern.compile("\\d+");
+
+    /** 含非 ASCII 数字：阿拉伯-印度数字、全角数字和字母、天城文数字 */
+    private static final char[] ALPHABET = "0123456789abcdefABCDEFgxG:.%٣１Ａ१".toCharArray();
+    private static final int RUNS = 200_000;
+
+    private static String randomString(Random random, int maxLength) {
+        char[] chars = new char[random.nextInt(maxLength + 1)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        return new String(chars);
+    }
+
+    /** 偏向生成接近 IPv6 的输入，否则随机串几乎不会命中 */
+    private static String randomIPv6(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int groups = 6 + random.nextInt(4);
+        for (int g = 0; g < groups; g++) {
+            if (g > 0) sb.append(':');
+            int len = random.nextInt(6);
+            for (int i = 0; i < len; i++) {
+                sb.append(random.nextInt(20) == 0
+                        ? ALPHABET[random.nextInt(ALPHABET.length)]
+                        : "0123456789abcdefABCDEF".charAt(random.nextInt(22)));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String randomIPv4(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int parts = 3 + random.nextInt(3);
+        for (int p = 0; p < parts; p++) {
+            if (p > 0) sb.append('.');
+            int len = random.nextInt(5);
+            for (int i = 0; i < len; i++) {
+                sb.append(random.nextInt(20) == 0
+                        ? ALPHABET[random.nextInt(ALPHABET.length)]
+                        : (char) ('0' + random.nextInt(10)));
+            }
+        }
+        return sb.toString();
+    }
+
+    /** %zone 之前是否有非 ASCII 字符（zone 只检查非空） */
+    private static boolean hasNonAscii(String s) {
+        int end = s.indexOf('%') >= 0 ? s.indexOf('%') : s.length();
+        for (int i = 0; i < end; i++) {
+            if (s.charAt(i) > 0x7F) return true;
+        }
+        return false;
+    }
+
+    /** 旧正则匹配且每段 0-255、最多 3 位时才是合法 IPv4 */
+    private static boolean oldIPv4InRange(String s) {
+        if (!OLD_IPV4.matcher(s).matches()) return false;
+        for (String part : s.split("\\.")) {
+            if (part.length() > 3 || Integer.parseInt(part) > 255) return false;
+        }
+        return true;
+    }
+
+    private static void checkAgainstOldRegex(String s) {
+        Addresses.Kind kind = Addresses.classify(s);
+        if (hasNonAscii(s)) {
+            assertEquals(Addresses.Kind.HOSTNAME, kind, s);
+            return;
+        }
+        assertEquals(oldIPv4InRange(s), kind == Addresses.Kind.IPV4, s);
+        // 不含压缩、内嵌 IPv4 和 zone 时，与旧的完整形式正则一致
+        if (!s.contains("::") && s.indexOf('.') < 0 && s.indexOf('%') < 0) {
+            assertEquals(OLD_IPV6.matcher(s).matches(), kind == Addresses.Kind.IPV6, s);
+        }
+        if (OLD_IPV6.matcher(s).matches()) {
+            assertEquals(Addresses.Kind.IPV6, kind, s);
+        }
+    }
+
+    @Test
+    void classifyAgreesWithOldRegex() {
+        Random random = new Random(20261017);
+        for (int run = 0; run < RUNS; run++) {
+            checkAgainstOldRegex(randomString(random, 24));
+            checkAgainstOldRegex(randomIPv4(random));
+            checkAgainstOldRegex(randomIPv6(random));
+        }
+    }
+
+    @Test
+    void parsePortAgreesWithOldRegex() {
+        Random random = new Random(25565);
+        for (int run = 0; run < RUNS; run++) {
+            String s = switch (random.nextInt(3)) {
+                case 0 -> randomString(random, 7);
+                case 1 -> Integer.toString(random.nextInt(100_000));
+                // 前导零：长度超过 6 位也可能是合法端口
+                default -> "0".repeat(1 + random.nextInt(8)) + random.nextInt(100_000);
+            };
+            int port = Addresses.parsePort(s, 0, s.length());
+            if (!OLD_PORT.matcher(s).matches()) {
+                assertEquals(-1, port, s);
+            } else {
+                assertEquals(new BigInteger(s).min(BigInteger.valueOf(65536)).intValue(), port, s);
+            }
+        }
+    }
+
+    @Test
+    void zeroPaddedPortIsParsed() {
+        assertEquals(80, Addresses.parsePort("0000080", 0, 7));
+        assertEquals(25565, Addresses.parsePort("00000000025565", 0, 14));
+        assertEquals(65536, Addresses.parsePort("0000065536", 0, 10));
+        assertEquals(0, Addresses.parsePort("0000000", 0, 7));
+    }
+
+    @Test
+    void nonAsciiDigitsAreNotHex() {
+        assertFalse(Addresses.isIpLiteral("2001:db8::٣"));
+        assertFalse(Addresses.isIpLiteral("１::1"));
+        assertFalse(Addresses.isIpLiteral("1:2:3:4:5:6:7:Ａ"));
+        assertFalse(Addresses.isIpLiteral("१.1.1.1"));
+        assertTrue(Addresses.isIpLiteral("2001:DB8::aB:1"));
+        assertTrue(Addresses.isIpLiteral("::ffff:192.0.2.1"));
+        assertTrue(Addresses.isIpLiteral("fe80::1%eth0"));
+    }
+}
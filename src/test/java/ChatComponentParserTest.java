@@ -0,0 +1,79 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatComponentParserTest {
+
+    /** depth 层 {"translate":"%1$s%1$s","with":[...]}，最内层为 {"text":"x"}，展开后为 2^depth 个 x */
+    private static String nestedTranslate(int depth) {
+        String json = "{\"text\":\"x\"}";
+        for (int i = 0; i < depth; i++) {
+            json = "{\"translate\":\"%1$s%1$s\",\"with\":[" + json + "]}";
+        }
+        return json;
+    }
+
+    @Test
+    void repeatedArgumentsRenderEachReference() {
+        Motd motd = Motd.parse(nestedTranslate(3));
+        assertTrue(motd.json);
+        assertEquals("xxxxxxxx", motd.plain());
+    }
+
+    @Test
+    void nestedTranslateIsBoundedByOutputBudget() {
+        // 64 层嵌套，逐次展开需要 2^64 次；每个参数只渲染一次并限制输出后，立即按普通字符串处理
+        String json = nestedTranslate(60);
+        Motd motd = assertTimeoutPreemptively(Duration.ofSeconds(2), () -> Motd.parse(json));
+        assertFalse(motd.json);
+        assertEquals(json, motd.plain());
+    }
+
+    @Test
+    void outputJustUnderBudgetIsKept() {
+        // 2^15 = 32768 个字符，在上限之内
+        Motd motd = Motd.parse(nestedTranslate(15));
+        assertTrue(motd.json);
+        assertEquals(1 << 15, motd.plain().length());
+    }
+
+    @Test
+    void argumentsInheritStyleAndKeepOrder() {
+        Motd motd = Motd.parse("{\"translate\":\"%2$s-%1$s-%2$s\",\"color\":\"red\","
+                + "\"with\":[\"a\",{\"text\":\"b\",\"bold\":true}]}");
+        assertTrue(motd.json);
+        assertEquals("b-a-b", motd.plain());
+        assertEquals(12, motd.color(0)); // red
+    }
+
+    @Test
+    void topLevelArrayIsAComponentList() {
+        Motd motd = Motd.parse("[{\"text\":\"a\",\"color\":\"red\"},\"b\"]");
+        assertTrue(motd.json);
+        assertEquals("ab", motd.plain());
+        assertEquals(1, motd.size()); // 后续元素继承第一个元素的样式，合并为同一段
+        assertEquals(12, motd.color(0));
+
+        Motd plain = Motd.parse("[Survival] Welcome");
+        assertFalse(plain.json);
+        assertEquals("[Survival] Welcome", plain.plain());
+    }
+
+    @Test
+    void nonAsciiHexEscapeIsRejected() {
+        // Character.digit 接受阿拉伯-印度数字和全角数字，这些不能出现在 JSON 的十六进制转义中
+        for (String digits : new String[]{"\u0660\u0660\u0664\u0661", "\uFF10\uFF10\uFF14\uFF11", "00\u0966A"}) {
+            String raw = "{\"text\":\"\\u" + digits + "\"}";
+            Motd motd = Motd.parse(raw);
+            assertFalse(motd.json, raw);
+            assertEquals(raw, motd.plain());
+        }
+        assertTrue(Motd.parse("{\"text\":\"\\u0041\"}").json);
+        assertEquals(-1, Motd.parseColor("#\uFF11\uFF11\uFF11\uFF11\uFF11\uFF11"));
+    }
+}
@@ -0,0 +1,138 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** 守护进程与 DaemonClient 之间的帧协议 */
+class DaemonTest {
+
+    private static Path socket;
+
+    /** 所有用例共用一个守护进程（在后台线程中一直运行） */
+    private static synchronized Path socket() throws Exception {
+        if (socket == null) {
+            Path path = Files.createTempDirectory("daemon").resolve("d.sock");
+            Config config = new Config();
+            config.socketPath = path.toString();
+            Thread.ofPlatform().daemon().start(() -> {
+                try {
+                    Daemon.run(config);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            });
+            long until = System.currentTimeMillis() + 5000;
+            while (!Files.exists(path) && System.currentTimeMillis() < until) {
+                Thread.sleep(10);
+            }
+            assertTrue(Files.exists(path));
+            socket = path;
+        }
+        return socket;
+    }
+
+    /** 一次请求的响应：按类型拼接的帧内容 */
+    private static final class Response {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        String out() {
+            return out.toString(StandardCharsets.UTF_8);
+        }
+
+        String err() {
+            return err.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Response request(int version, byte[] input, String... args) throws Exception {
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket()));
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+            out.writeInt(version);
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.writeInt(input == null ? -1 : input.length);
+            if (input != null) out.write(input);
+            out.flush();
+
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            Response response = new Response();
+            while (true) {
+                byte type = in.readByte();
+                if (type == DaemonClient.FRAME_END) return response;
+                byte[] body = in.readNBytes(in.readInt());
+                switch (type) {
+                    case DaemonClient.FRAME_OUT -> response.out.write(body);
+                    case DaemonClient.FRAME_ERR -> response.err.write(body);
+                    case DaemonClient.FRAME_KEEPALIVE -> assertEquals(0, body.length);
+                    default -> throw new AssertionError("unknown frame type " + type);
+                }
+            }
+        }
+    }
+
+    @Test
+    void commandOutputArrivesInFramesBeforeEnd() throws Exception {
+        Response response = request(DaemonClient.PROTOCOL_VERSION, null, "-c", "api", "127.0.0.1:1");
+        assertTrue(response.out().contains("\"online\":false"), response.out());
+        assertEquals("", response.err());
+    }
+
+    @Test
+    void inputIsSentWithTheRequest() throws Exception {
+        byte[] input = "127.0.0.1:1\n127.0.0.1:2\n".getBytes(StandardCharsets.UTF_8);
+        Response response = request(DaemonClient.PROTOCOL_VERSION, input, "-c", "api", "-");
+        String out = response.out();
+        assertTrue(out.contains("\"port\":1") && out.contains("\"port\":2"), out);
+    }
+
+    @Test
+    void unknownCommandIsReportedOnStderr() throws Exception {
+        Response response = request(DaemonClient.PROTOCOL_VERSION, null, "-x");
+        assertTrue(response.err().contains("-x"), response.err());
+        assertEquals("", response.out());
+    }
+
+    @Test
+    void otherProtocolVersionIsClosedWithoutFrames() {
+        // 守护进程读到版本号就关闭连接：客户端读到 EOF，或者还在写请求时连接已断开
+        assertThrows(IOException.class, () -> request(DaemonClient.PROTOCOL_VERSION + 1, null, "-c", "127.0.0.1:1"));
+    }
+
+    @Test
+    void clientRelaysStdoutAndFallsBackWithoutDaemon() throws Exception {
+        String path = socket().toString();
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        boolean forwarded;
+        try {
+            forwarded = DaemonClient.forward(new String[]{"-c", "api", "127.0.0.1:1", "--socket", path});
+        } finally {
+            System.setOut(stdout);
+        }
+        assertTrue(forwarded);
+        assertTrue(captured.toString(StandardCharsets.UTF_8).contains("\"online\":false"));
+
+        String missing = Files.createTempDirectory("daemon").resolve("none.sock").toString();
+        assertFalse(DaemonClient.forward(new String[]{"-c", "127.0.0.1:1", "--socket", missing}));
+    }
+}
@@ -0,0 +1,40 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class DashboardModelTest {
+
+    @Test
+    void repeatedResultAddsOnePoint() {
+        Dashboard.Model model = new Dashboard.Model();
+        model.add("a.example");
+        Dashboard.Row row = model.rows.get(0);
+        ServerResult result = ServerResult.failure("a.example", "down");
+
+        model.update(row, result);
+        model.update(row, result); // 缓存命中时返回同一个结果
+        assertEquals(1, row.players.size());
+        assertEquals(1, row.ping.size());
+        assertSame(result, row.latest);
+    }
+
+    @Test
+    void removeKeepsIndicesInStep() {
+        Dashboard.Model model = new Dashboard.Model();
+        model.add("a.example");
+        model.add("b.example");
+        model.add("c.example");
+        Dashboard.Row removed = model.rows.get(0);
+        Dashboard.Row last = model.rows.get(2);
+
+        model.remove(0);
+        assertEquals(-1, removed.index);
+        assertEquals(1, last.index);
+
+        model.update(removed, ServerResult.failure("a.example", "down"));
+        assertEquals(0, removed.players.size()); // 查询期间已被删除的行不再更新
+        model.update(last, ServerResult.failure("c.example", "down"));
+        assertEquals(1, last.players.size());
+    }
+}
@@ -0,0 +1,35 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class FaviconStoreTest {
+
+    private static String dataUri(int seed, int size) {
+        byte[] png = new byte[size];
+        for (int i = 0; i < size; i++) {
+            png[i] = (byte) (seed * 31 + i);
+        }
+        return "data:image/png;base64," + Base64.getEncoder().encodeToString(png);
+    }
+
+    @Test
+    void evictedIconStaysAvailableWhileAResultReferencesIt() throws Exception {
+        // 内存上限只够放一个图标，没有溢出目录
+        FaviconStore.configure(1500, null);
+        try {
+            String hash = FaviconStore.put(dataUri(1, 1000));
+            PingStatus status = new PingStatus("1.20.4", 765, 0, 20, 1, "motd", hash);
+            for (int i = 2; i < 10; i++) {
+                FaviconStore.put(dataUri(i, 1000));
+            }
+            byte[] png = FaviconStore.get(status.favicon);
+            assertNotNull(png);
+            assertEquals(1000, png.length);
+        } finally {
+            FaviconStore.configure(16L * 1024 * 1024, null);
+        }
+    }
+}
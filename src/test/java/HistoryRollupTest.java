@@ -0,0 +1,81 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HistoryRollupTest {
+
+    private static final Main.HostPort SERVER = new Main.HostPort("example.com", 25565);
+
+    private static PingStatus online(int players, long ping) {
+        return new PingStatus("1.20.4", 765, players, 100, ping, "motd", null);
+    }
+
+    @Test
+    void closedBucketsSurviveRestartBeyondRawRetention() throws Exception {
+        Path dir = Files.createTempDirectory("rollup");
+        long now = System.currentTimeMillis();
+        long old = now - TimeUnit.DAYS.toMillis(100);
+        try (HistoryStore store = new HistoryStore(dir, TimeUnit.DAYS.toMillis(30))) {
+            HistoryRollup rollup = new HistoryRollup(dir.resolve(HistoryRollup.SNAPSHOT_FILE));
+            // 100 天前的样本早已不在原始历史中，只能来自快照
+            rollup.record(SERVER, old, online(7, 40));
+            rollup.record(SERVER, old + 1, online(9, 60));
+            // 当前的样本同时在原始历史中，重启后不能重复计数
+            PingStatus current = online(3, 20);
+            store.record(SERVER, new ServerResult(SERVER.host, SERVER.port, current));
+            rollup.record(SERVER, now, current);
+            rollup.save();
+
+            HistoryRollup restored = new HistoryRollup(dir.resolve(HistoryRollup.SNAPSHOT_FILE));
+            restored.restore(store);
+
+            List<HistoryRollup.Bucket> days = restored.query(SERVER, HistoryRollup.Tier.DAY, old - 1, now);
+            assertEquals(2, days.size());
+            HistoryRollup.Bucket first = days.get(0);
+            assertEquals(2, first.samples);
+            assertEquals(7, first.playersMin);
+            assertEquals(9, first.playersMax);
+            assertEquals(2L, first.latency.count());
+            assertEquals(1, days.get(1).samples);
+
+            List<HistoryRollup.Bucket> minutes = restored.query(SERVER, HistoryRollup.Tier.MINUTE, now - 60_000, now);
+            assertEquals(1, minutes.size());
+            assertEquals(1, minutes.get(0).samples);
+        }
+    }
+
+    @Test
+    void missingSnapshotRebuildsFromHistory() throws Exception {
+        Path dir = Files.createTempDirectory("rollup");
+        try (HistoryStore store = new HistoryStore(dir, TimeUnit.DAYS.toMillis(30))) {
+            store.record(SERVER, new ServerResult(SERVER.host, SERVER.port, online(5, 30)));
+            HistoryRollup rollup = new HistoryRollup(dir.resolve(HistoryRollup.SNAPSHOT_FILE));
+            rollup.restore(store);
+            long now = System.currentTimeMillis();
+            assertEquals(1, rollup.query(SERVER, HistoryRollup.Tier.HOUR, now - 3_600_000, now).size());
+        }
+    }
+
+    @Test
+    void sketchRoundTripKeepsQuantiles() throws Exception {
+        LatencySketch sketch = new LatencySketch();
+        for (int i = 1; i <= 1000; i++) {
+            sketch.add(i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.writeTo(new DataOutputStream(bytes));
+        LatencySketch copy = LatencySketch.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(sketch.count(), copy.count());
+        assertEquals(sketch.quantile(0.5), copy.quantile(0.5));
+        assertEquals(sketch.quantile(0.99), copy.quantile(0.99));
+    }
+}
@@ -0,0 +1,145 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistoryStoreTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final Main.HostPort A = new Main.HostPort("A.example", 25565);
+    private static final Main.HostPort B = new Main.HostPort("b.example", 25566);
+
+    private static ServerResult online(Main.HostPort hp, int players, long ping) {
+        return new ServerResult(hp.host, hp.port, new PingStatus("1.20.4", 765, players, 100, ping, "motd", null));
+    }
+
+    private static ServerResult timedOut(Main.HostPort hp) {
+        return new ServerResult(hp.host, hp.port, PingStatus.timeout("Timed out"));
+    }
+
+    private static List<Path> segments(Path dir) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    @Test
+    void recordLayoutOnDisk() throws Exception {
+        Path dir = Files.createTempDirectory("history");
+        long before = System.currentTimeMillis();
+        try (HistoryStore store = new HistoryStore(dir, DAY)) {
+            store.record(A, online(A, 7, 42));
+            store.record(B, timedOut(B));
+        }
+
+        assertEquals(List.of("a.example:25565", "b.example:25566"), Files.readAllLines(dir.resolve("hosts.txt")));
+        List<Path> files = segments(dir);
+        assertEquals(1, files.size());
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(files.get(0)));
+        assertEquals(0x4D435348, buf.getInt(0));
+        assertEquals(1, buf.getInt(4));
+        assertEquals(HistoryStore.RECORD_SIZE, buf.getInt(8));
+
+        int first = HistoryStore.HEADER_SIZE;
+        assertTrue(buf.getLong(first) >= before);
+        assertEquals(0, buf.getInt(first + 8));
+        assertEquals(765, buf.getInt(first + 12));
+        assertEquals(7, buf.getInt(first + 16));
+        assertEquals(100, buf.getInt(first + 20));
+        assertEquals(42, buf.getInt(first + 24));
+        assertEquals(HistoryStore.FLAG_ONLINE, buf.get(first + 28));
+
+        int second = first + HistoryStore.RECORD_SIZE;
+        assertEquals(1, buf.getInt(second + 8));
+        assertEquals(-1, buf.getInt(second + 24));
+        assertEquals(HistoryStore.FLAG_TIMED_OUT, buf.get(second + 28));
+        assertEquals(0, buf.getLong(second + HistoryStore.RECORD_SIZE)); // 空位
+    }
+
+    @Test
+    void reopenedStoreKeepsRecordsAndHostIds() throws Exception {
+        Path dir = Files.createTempDirectory("history");
+        try (HistoryStore store = new HistoryStore(dir, DAY)) {
+            store.record(A, online(A, 1, 10));
+            store.record(B, online(B, 2, 20));
+        }
+        try (HistoryStore store = new HistoryStore(dir, DAY)) {
+            store.record(new Main.HostPort("a.EXAMPLE", 25565), online(A, 3, 30));
+            List<HistoryStore.Point> points = store.query(A, 0, Long.MAX_VALUE, 100);
+            assertEquals(2, points.size());
+            assertEquals(1, points.get(0).playersOnline);
+            assertEquals(3, points.get(1).playersOnline);
+            assertTrue(points.get(0).timestamp <= points.get(1).timestamp);
+        }
+        assertEquals(2, Files.readAllLines(dir.resolve("hosts.txt")).size());
+    }
+
+    @Test
+    void rangeQueryHonoursBoundsAndLimit() throws Exception {
+        Path dir = Files.createTempDirectory("history");
+        try (HistoryStore store = new HistoryStore(dir, DAY)) {
+            store.record(A, online(A, 1, 10));
+            Thread.sleep(20);
+            long from = System.currentTimeMillis();
+            store.record(A, online(A, 2, 10));
+            store.record(B, online(B, 9, 10));
+            store.record(A, timedOut(A));
+            long to = System.currentTimeMillis();
+            Thread.sleep(20);
+            store.record(A, online(A, 4, 10));
+
+            List<HistoryStore.Point> points = store.query(A, from, to, 100);
+            assertEquals(2, points.size());
+            assertEquals(2, points.get(0).playersOnline);
+            assertTrue(points.get(1).timedOut);
+            assertFalse(points.get(1).online);
+
+            assertEquals(1, store.query(A, from, to, 1).size());
+            assertEquals(4, store.query(A, 0, Long.MAX_VALUE, 100).size());
+            assertTrue(store.query(new Main.HostPort("c.example", 25565), 0, Long.MAX_VALUE, 100).isEmpty());
+        }
+    }
+
+    @Test
+    void fullSegmentRollsOver() throws Exception {
+        Path dir = Files.createTempDirectory("history");
+        try (HistoryStore store = new HistoryStore(dir, DAY)) {
+            ServerResult result = online(A, 1, 10);
+            for (int i = 0; i <= HistoryStore.RECORDS_PER_SEGMENT; i++) {
+                store.record(A, result);
+            }
+            assertEquals(2, segments(dir).size());
+            assertEquals(HistoryStore.RECORDS_PER_SEGMENT + 1, store.query(A, 0, Long.MAX_VALUE, Integer.MAX_VALUE).size());
+        }
+    }
+
+    @Test
+    void expiredSegmentsAreDroppedWhileRecording() throws Exception {
+        Path dir = Files.createTempDirectory("history");
+        long retention = 400;
+        try (HistoryStore store = new HistoryStore(dir, retention)) {
+            store.record(A, online(A, 1, 10));
+            // 分段跨度为保留期的 1/4，流量很小时也按时间新建分段
+            Thread.sleep(retention / HistoryStore.SEGMENTS_PER_RETENTION + 20);
+            store.record(A, online(A, 2, 10));
+            assertEquals(2, segments(dir).size());
+
+            Thread.sleep(retention + 50);
+            // 第二段开始时间已超出保留期：第一段被删除，超出保留期的记录也不再返回
+            store.record(A, online(A, 3, 10));
+            List<Path> files = segments(dir);
+            assertEquals(2, files.size());
+            List<HistoryStore.Point> points = store.query(A, 0, Long.MAX_VALUE, 100);
+            assertEquals(1, points.size());
+            assertEquals(3, points.get(0).playersOnline);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonWriterTest {
+
+    private static String json(JsonWriter w) {
+        return new String(w.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String string(String value) {
+        JsonWriter w = new JsonWriter();
+        w.value(value);
+        return json(w);
+    }
+
+    @Test
+    void escapesQuotesBackslashesAndControlCharacters() {
+        assertEquals("\"a\\\"b\\\\c\\n\\r\\t\\b\\f\\u0001\\u001f\"", string("a\"b\\c\n\r\t\b\f\u0001\u001f"));
+        assertEquals("\"/ \u007f\"", string("/ \u007f"));
+        assertEquals("null", string(null));
+    }
+
+    @Test
+    void encodesUtf8LikeStringGetBytes() {
+        String s = "é中文😀";
+        JsonWriter w = new JsonWriter();
+        w.value(s);
+        assertEquals("\"" + s + "\"", json(w));
+        assertEquals(("\"" + s + "\"").getBytes(StandardCharsets.UTF_8).length, w.size());
+        // 孤立的代理字符与 String.getBytes 一样写为 '?'
+        assertEquals("\"a?b\"", string("a\uD800b"));
+    }
+
+    @Test
+    void insertsCommasByNestingLevel() {
+        JsonWriter w = new JsonWriter();
+        w.beginObject().name("a").value(1).name("b").beginArray().value(true).value("x")
+                .beginObject().endObject().beginArray().endArray().endArray()
+                .name("c").rawValue("{\"d\":[1]}").endObject();
+        assertEquals("{\"a\":1,\"b\":[true,\"x\",{},[]],\"c\":{\"d\":[1]}}", json(w));
+    }
+
+    @Test
+    void writesLongs() {
+        JsonWriter w = new JsonWriter();
+        w.beginArray().value(0).value(-7).value(1234567890123L).value(Long.MAX_VALUE).value(Long.MIN_VALUE).endArray();
+        assertEquals("[0,-7,1234567890123," + Long.MAX_VALUE + "," + Long.MIN_VALUE + "]", json(w));
+    }
+
+    @Test
+    void rawFieldsMergeIntoTheCurrentObject() {
+        JsonWriter w = new JsonWriter();
+        w.beginObject().name("address").value("a").rawFields("{\"host\":\"h\",\"port\":1}".getBytes(StandardCharsets.UTF_8))
+                .rawFields("{}".getBytes(StandardCharsets.UTF_8)).endObject();
+        assertEquals("{\"address\":\"a\",\"host\":\"h\",\"port\":1}", json(w));
+    }
+
+    @Test
+    void returnedWriterIsReusedEmpty() {
+        JsonWriter first = JsonWriter.borrow();
+        first.beginArray().value(1); // 未结束就归还
+        first.close();
+
+        List<JsonWriter> borrowed = new ArrayList<>();
+        boolean reused = false;
+        for (int i = 0; i < 100 && !reused; i++) {
+            JsonWriter w = JsonWriter.borrow();
+            borrowed.add(w);
+            reused = w == first;
+        }
+        assertTrue(reused);
+        assertEquals(0, first.size());
+        first.beginArray().value(2).endArray();
+        assertEquals("[2]", json(first));
+        borrowed.forEach(JsonWriter::close);
+    }
+
+    @Test
+    void largeBuffersAreNotPooled() {
+        JsonWriter big = JsonWriter.borrow();
+        big.value("x".repeat(100_000));
+        big.close();
+
+        List<JsonWriter> borrowed = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            JsonWriter w = JsonWriter.borrow();
+            borrowed.add(w);
+            assertFalse(w == big);
+        }
+        borrowed.forEach(JsonWriter::close);
+    }
+}
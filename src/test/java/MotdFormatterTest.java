@@ -0,0 +1,37 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MotdFormatterTest {
+
+    private static final String ESC = "\u001B";
+
+    @Test
+    void ansiUsesComponentColorsAndFormats() {
+        Motd motd = Motd.parse("{\"text\":\"Hi\",\"color\":\"red\",\"bold\":true,"
+                + "\"extra\":[{\"text\":\"x\",\"color\":\"#123456\"},{\"text\":\"y\"}]}");
+        assertEquals(ESC + "[91m" + ESC + "[1mHi" + ESC + "[0m"
+                + ESC + "[38;2;18;52;86m" + ESC + "[1mx" + ESC + "[0m"
+                + ESC + "[91m" + ESC + "[1my" + ESC + "[0m", motd.rendered().ansi);
+    }
+
+    @Test
+    void ansiFromSectionCodes() {
+        assertEquals(ESC + "[92mGreen" + ESC + "[0mplain",
+                Motd.parse("§aGreen§rplain").rendered().ansi);
+        assertEquals("plain", Motd.parse("plain").rendered().ansi);
+    }
+
+    @Test
+    void ansiDropsControlCharacters() {
+        // 服务器文本中的 ESC 不能原样写到终端
+        assertEquals("ab[2Jc\nd", Motd.parse("a\u0007b" + ESC + "[2Jc\nd").rendered().ansi);
+    }
+
+    @Test
+    void renderingIsCachedOnTheInternedMotd() {
+        String raw = "{\"text\":\"cached\",\"color\":\"gold\"}";
+        assertSame(Motd.of(raw).rendered().ansi, Motd.of(raw).rendered().ansi);
+    }
+}
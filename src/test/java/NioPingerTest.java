@@ -0,0 +1,151 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NioPingerTest {
+
+    @Test
+    void interruptingPingClosesTheConnection() throws Exception {
+        // 接受连接但从不回应的服务器：只有客户端关闭连接时 read 才返回 -1
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            CompletableFuture<Boolean> closed = CompletableFuture.supplyAsync(() -> {
+                try (Socket client = server.accept(); InputStream in = client.getInputStream()) {
+                    while (in.read() >= 0) {
+                        // 丢弃握手和状态请求
+                    }
+                    return true;
+                } catch (Exception e) {
+                    return false;
+                }
+            });
+
+            Pinger pinger = new NioPinger(1);
+            CompletableFuture<Throwable> thrown = new CompletableFuture<>();
+            Thread caller = Thread.ofPlatform().start(() -> {
+                try {
+                    pinger.ping("127.0.0.1", server.getLocalPort(), Deadline.of(5000, 5000, 10000));
+                    thrown.complete(null);
+                } catch (Throwable t) {
+                    thrown.complete(t);
+                }
+            });
+            Thread.sleep(200);
+            caller.interrupt();
+
+            assertTrue(thrown.get(1, TimeUnit.SECONDS) instanceof CancellationException);
+            // 远早于 5 秒的读取超时
+            assertTrue(closed.get(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void hostnameIsResolvedWithinTheDeadline() {
+        PingStatus status = NioPinger.shared().ping("localhost", 1, Deadline.of(1000, 1000, 1000));
+        assertFalse(status.online);
+    }
+
+    @Test
+    void expiredDeadlineTimesOutBeforeResolving() {
+        PingStatus status = NioPinger.shared().ping("example.invalid", 25565, Deadline.of(0, 0, 0));
+        assertTrue(status.timedOut);
+    }
+
+    @Test
+    void arrayDescriptionIsOnline() throws Exception {
+        String json = "{\"version\":{\"name\":\"1.20.4\",\"protocol\":765},\"players\":{\"max\":20,\"online\":2},"
+                + "\"description\":[{\"text\":\"Hi \",\"color\":\"red\"},\"there\"]}";
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Thread.ofPlatform().daemon().start(() -> respond(server, json));
+            PingStatus status = NioPinger.shared().ping("127.0.0.1", server.getLocalPort(), Deadline.of(2000, 2000, 4000));
+            assertTrue(status.online, String.valueOf(status.error));
+            assertEquals(2, status.playersOnline);
+            assertTrue(status.motd.json);
+            assertEquals("Hi there", status.motd.plain());
+        }
+    }
+
+    @Test
+    void bytesAfterPongAreIgnored() throws Exception {
+        String json = "{\"version\":{\"name\":\"1.20.4\",\"protocol\":765},\"players\":{\"max\":20,\"online\":2}}";
+        // 同一段数据里回应两次 pong，后面再跟一个未知的包
+        byte[] pongs = {9, 0x01, 0, 0, 0, 0, 0, 0, 0, 0, 9, 0x01, 0, 0, 0, 0, 0, 0, 0, 0, 1, 0x7F};
+        for (int i = 0; i < 20; i++) {
+            try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+                Thread.ofPlatform().daemon().start(() -> respond(server, json, pongs));
+                PingStatus status = NioPinger.shared().ping("127.0.0.1", server.getLocalPort(), Deadline.of(2000, 2000, 4000));
+                assertTrue(status.online, String.valueOf(status.error));
+            }
+        }
+    }
+
+    /** 回应一次状态请求：握手 → 状态请求 → 状态 JSON，之后直接关闭（不回应 ping） */
+    private static void respond(ServerSocket server, String json) {
+        respond(server, json, null);
+    }
+
+    /** @param afterPing 收到 ping 后原样写回的数据，null 表示直接关闭 */
+    private static void respond(ServerSocket server, String json, byte[] afterPing) {
+        try (Socket client = server.accept()) {
+            DataInputStream in = new DataInputStream(client.getInputStream());
+            in.readFully(new byte[readVarInt(in)]); // 握手
+            in.readFully(new byte[readVarInt(in)]); // 状态请求
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            OutputStream out = client.getOutputStream();
+            writeVarInt(out, 1 + varIntSize(body.length) + body.length);
+            out.write(0x00);
+            writeVarInt(out, body.length);
+            out.write(body);
+            out.flush();
+            in.readFully(new byte[readVarInt(in)]); // ping
+            if (afterPing != null) {
+                out.write(afterPing);
+                out.flush();
+                in.read(); // 等客户端关闭连接
+            }
+        } catch (IOException ignored) {
+            // 客户端提前断开
+        }
+    }
+
+    private static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new IOException("EOF");
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("VarInt too big");
+    }
+
+    private static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,28 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class QueryParamTest {
+
+    private static String format(String query, int start) {
+        return Main.queryParam(query.split("&"), start, "format");
+    }
+
+    @Test
+    void nameMustMatchExactly() {
+        assertEquals("ndjson", format("format=ndjson", 0));
+        assertEquals("ndjsonfoo", format("format=ndjsonfoo", 0));
+        assertNull(format("xformat=ndjson", 0));
+        assertNull(format("formats=ndjson", 0));
+        assertEquals("ndjson", format("xformat=json&format=ndjson", 0));
+    }
+
+    @Test
+    void valueIsDecodedAndAddressIsSkipped() {
+        assertEquals("a b", format("x&format=a%20b", 1));
+        assertEquals("", format("x&format", 1));
+        // 地址本身不参与匹配
+        assertNull(format("format=json", 1));
+    }
+}
@@ -0,0 +1,70 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** ClientRateLimiter 和 TargetThrottle */
+class RateLimitTest {
+
+    @Test
+    void clientBurstIsAllowedThenLimited() {
+        ClientRateLimiter limiter = new ClientRateLimiter(10, 3);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("1.2.3.4"));
+        }
+        long wait = limiter.tryAcquire("1.2.3.4");
+        assertTrue(wait > 0 && wait <= 100, "wait=" + wait);
+        // 其他客户端不受影响
+        assertEquals(0, limiter.tryAcquire("5.6.7.8"));
+    }
+
+    @Test
+    void clientTokensRefillOverTime() throws Exception {
+        ClientRateLimiter limiter = new ClientRateLimiter(20, 1);
+        assertEquals(0, limiter.tryAcquire("1.2.3.4"));
+        assertTrue(limiter.tryAcquire("1.2.3.4") > 0);
+        Thread.sleep(70);
+        assertEquals(0, limiter.tryAcquire("1.2.3.4"));
+    }
+
+    @Test
+    void zeroRateDisablesClientLimit() {
+        assertFalse(new ClientRateLimiter(0, 10).isEnabled());
+        assertTrue(new ClientRateLimiter(1, 1).isEnabled());
+    }
+
+    @Test
+    void targetConcurrencyIsCappedPerHost() {
+        TargetThrottle throttle = new TargetThrottle(1, 0);
+        TargetThrottle.Slot slot = throttle.acquire("Play.Example", 1000);
+        // 主机名不区分大小写
+        assertThrows(RateLimitedException.class, () -> throttle.acquire("play.example", 1000));
+        throttle.release(throttle.acquire("other.example", 1000));
+        throttle.release(slot);
+        throttle.release(throttle.acquire("play.example", 1000));
+    }
+
+    @Test
+    void targetIntervalIsReservedWithinTheBudget() {
+        TargetThrottle throttle = new TargetThrottle(10, 100);
+        throttle.release(throttle.acquire("play.example", 0));
+
+        // 下一个时间点在约 100ms 之后：预算不够则拒绝，并给出需要等待的时间
+        RateLimitedException e = assertThrows(RateLimitedException.class, () -> throttle.acquire("play.example", 10));
+        assertTrue(e.getRetryAfterMillis() > 10 && e.getRetryAfterMillis() <= 100, "retryAfter=" + e.getRetryAfterMillis());
+
+        long start = System.nanoTime();
+        throttle.release(throttle.acquire("play.example", 1000));
+        long waited = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(waited >= 80, "waited=" + waited);
+    }
+
+    @Test
+    void retryAfterSecondsRoundsUp() {
+        assertEquals(1, RateLimitedException.toSeconds(0));
+        assertEquals(1, RateLimitedException.toSeconds(1000));
+        assertEquals(2, RateLimitedException.toSeconds(1001));
+    }
+}
@@ -0,0 +1,120 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultCacheTest {
+
+    private static final Main.HostPort A = new Main.HostPort("a.example", 25565);
+    private static final Main.HostPort B = new Main.HostPort("b.example", 25565);
+    private static final Main.HostPort C = new Main.HostPort("c.example", 25565);
+
+    private static ServerResult online(Main.HostPort hp, int players) {
+        return new ServerResult(hp.host, hp.port, new PingStatus("1.20.4", 765, players, 20, 1, "motd", null));
+    }
+
+    private static ServerResult timedOut(Main.HostPort hp) {
+        return new ServerResult(hp.host, hp.port, PingStatus.timeout("Timed out"));
+    }
+
+    @Test
+    void freshEntryIsServedWithoutLoading() {
+        AtomicInteger loads = new AtomicInteger();
+        ResultCache cache = new ResultCache(10, 60_000, 60_000, hp -> {
+            loads.incrementAndGet();
+            return online(hp, 0);
+        });
+        ServerResult result = online(A, 1);
+        cache.put(A, result);
+        assertSame(result, cache.get(A));
+        assertNull(cache.get(B));
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void staleEntryIsServedWhileOneRefreshRuns() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ServerResult fresh = online(A, 2);
+        ResultCache cache = new ResultCache(10, 50, 60_000, hp -> {
+            loads.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return fresh;
+        });
+        ServerResult old = online(A, 1);
+        cache.put(A, old);
+        Thread.sleep(100);
+
+        // 旧值立即返回，多次读取只触发一次刷新
+        assertSame(old, cache.get(A));
+        assertSame(old, cache.get(A));
+        release.countDown();
+        long until = System.currentTimeMillis() + 2000;
+        while (cache.peek(A) != fresh && System.currentTimeMillis() < until) {
+            Thread.sleep(10);
+        }
+        assertSame(fresh, cache.get(A));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void timedOutRefreshKeepsTheOldValue() throws Exception {
+        CountDownLatch loaded = new CountDownLatch(2);
+        ResultCache cache = new ResultCache(10, 20, 60_000, hp -> {
+            loaded.countDown();
+            return timedOut(hp);
+        });
+        ServerResult old = online(A, 1);
+        cache.put(A, old);
+        Thread.sleep(50);
+
+        assertSame(old, cache.get(A));
+        // 超时的刷新不覆盖旧值，之后的读取可以再次刷新
+        long until = System.currentTimeMillis() + 2000;
+        while (loaded.getCount() > 0 && System.currentTimeMillis() < until) {
+            assertSame(old, cache.get(A));
+            Thread.sleep(10);
+        }
+        assertTrue(loaded.await(0, TimeUnit.MILLISECONDS));
+        assertSame(old, cache.peek(A));
+    }
+
+    @Test
+    void expiredEntryIsOnlyAvailableThroughPeek() throws Exception {
+        ResultCache cache = new ResultCache(10, 20, 20, hp -> online(hp, 0));
+        ServerResult old = online(A, 1);
+        cache.put(A, old);
+        Thread.sleep(100);
+        assertNull(cache.get(A));
+        assertSame(old, cache.peek(A));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        ResultCache cache = new ResultCache(2, 60_000, 0, hp -> online(hp, 0));
+        cache.put(A, online(A, 1));
+        cache.put(B, online(B, 1));
+        cache.get(A); // A 变为最近使用
+        cache.put(C, online(C, 1));
+        assertNull(cache.peek(B));
+        assertTrue(cache.peek(A) != null && cache.peek(C) != null);
+    }
+
+    @Test
+    void zeroTtlDisablesTheCache() {
+        ResultCache cache = new ResultCache(10, 0, 60_000, hp -> online(hp, 0));
+        cache.put(A, online(A, 1));
+        assertNull(cache.get(A));
+        assertNull(cache.peek(A));
+    }
+}
@@ -0,0 +1,122 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    /** 公共 ForkJoinPool 在单核机器上只有一个线程，阻塞的领头者会让等待者无法启动 */
+    private static final ExecutorService POOL = Executors.newVirtualThreadPerTaskExecutor();
+
+    /** 在后台线程中以领头者身份执行 task，返回时 task 已经开始 */
+    private static <V> CompletableFuture<V> lead(SingleFlight<String, V> flights, CountDownLatch release, V value)
+            throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<V> result = CompletableFuture.supplyAsync(() -> flights.run("k", () -> {
+            started.countDown();
+            await(release);
+            return value;
+        }), POOL);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        return result;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void waitersShareTheLeaderResult() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> leader = lead(flights, release, "leader");
+
+        AtomicInteger runs = new AtomicInteger();
+        List<CompletableFuture<String>> waiters = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            waiters.add(CompletableFuture.supplyAsync(() -> flights.run("k", () -> {
+                runs.incrementAndGet();
+                return "waiter";
+            }, 5000), POOL));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals("leader", leader.get(1, TimeUnit.SECONDS));
+        for (CompletableFuture<String> w : waiters) {
+            assertEquals("leader", w.get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(0, runs.get());
+        assertEquals(0, flights.size());
+    }
+
+    @Test
+    void waiterGivesUpAfterWaitMillis() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> leader = lead(flights, release, "leader");
+
+        assertThrows(DeadlineExceededException.class, () -> flights.run("k", () -> "waiter", 50));
+        release.countDown();
+        // 等待者超时不影响正在执行的任务
+        assertEquals("leader", leader.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void exceptionIsSharedWithWaiters() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        IllegalStateException failure = new IllegalStateException("boom");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> flights.run("k", () -> {
+            started.countDown();
+            await(release);
+            throw failure;
+        }), POOL);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        CompletableFuture<Throwable> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                flights.run("k", () -> "waiter", 5000);
+                return null;
+            } catch (Throwable t) {
+                return t;
+            }
+        }, POOL);
+        Thread.sleep(100);
+        release.countDown();
+
+        assertSame(failure, waiter.get(1, TimeUnit.SECONDS));
+        assertTrue(leader.handle((v, e) -> e.getCause() == failure).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void unshareableResultIsRetriedByTheWaiter() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> leader = lead(flights, release, "timed out");
+
+        CompletableFuture<String> waiter = CompletableFuture.supplyAsync(() ->
+                flights.run("k", () -> "fresh", 5000, (value, error) -> !"timed out".equals(value)), POOL);
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals("timed out", leader.get(1, TimeUnit.SECONDS));
+        assertEquals("fresh", waiter.get(1, TimeUnit.SECONDS));
+    }
+}
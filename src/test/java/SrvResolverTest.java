@@ -0,0 +1,46 @@
+import org.junit.jupiter.api.Test;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.SRVRecord;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SrvResolverTest {
+
+    private static final Name OWNER = Name.fromConstantString("_minecraft._tcp.example.com.");
+
+    private static SRVRecord srv(int priority, int weight, String target) {
+        return new SRVRecord(OWNER, DClass.IN, 60, priority, weight, 25565, Name.fromConstantString(target));
+    }
+
+    @Test
+    void lowestPriorityWinsRegardlessOfOrder() {
+        Record[] records = {srv(20, 100, "backup.example.com."), srv(10, 0, "main.example.com.")};
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("main.example.com.", SrvResolver.select(records, random).getTarget().toString());
+        }
+    }
+
+    @Test
+    void weightsSplitTraffic() {
+        Record[] records = {srv(10, 1, "light.example.com."), srv(10, 3, "heavy.example.com.")};
+        Random random = new Random(42);
+        int heavy = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (SrvResolver.select(records, random).getTarget().toString().startsWith("heavy")) heavy++;
+        }
+        // RFC 2782 在 0..权重和（含 0）中取随机数：0、1 落在 light，2..4 落在 heavy，期望 3/5
+        assertTrue(heavy > 5500 && heavy < 6500, "heavy=" + heavy);
+    }
+
+    @Test
+    void rootTargetMeansUnavailable() {
+        assertNull(SrvResolver.select(new Record[]{srv(0, 0, ".")}, new Random(1)));
+    }
+}
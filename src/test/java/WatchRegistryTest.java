@@ -0,0 +1,48 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WatchRegistryTest {
+
+    private static WatchRegistry registry() {
+        return new WatchRegistry(new PingService(new Config()));
+    }
+
+    @Test
+    void invalidAddressAddsNothing() {
+        WatchRegistry watches = registry();
+        WatchRegistry.InvalidAddressException e = assertThrows(WatchRegistry.InvalidAddressException.class,
+                () -> watches.addAll(List.of("127.0.0.1:25565", "127.0.0.1:99999", "127.0.0.2:25565"), 60_000));
+        assertEquals("127.0.0.1:99999", e.address);
+        assertTrue(watches.entries().isEmpty());
+    }
+
+    @Test
+    void intervalBelowMinimumIsRejected() {
+        WatchRegistry watches = registry();
+        assertThrows(IllegalArgumentException.class,
+                () -> watches.add("127.0.0.1:25565", WatchRegistry.MIN_INTERVAL_MILLIS - 1));
+        assertTrue(watches.entries().isEmpty());
+    }
+
+    @Test
+    void entriesAreCapped() {
+        WatchRegistry watches = registry();
+        List<String> addresses = new ArrayList<>();
+        for (int i = 0; i < WatchRegistry.MAX_ENTRIES; i++) {
+            addresses.add("127.0." + (i / 250) + "." + (i % 250 + 1) + ":25565");
+        }
+        watches.addAll(addresses, 3_600_000);
+        assertEquals(WatchRegistry.MAX_ENTRIES, watches.entries().size());
+
+        // 替换已有的不计入上限，新增的被拒绝
+        watches.add(addresses.get(0), 1_800_000);
+        assertThrows(IllegalStateException.class, () -> watches.add("127.1.0.1:25565", 3_600_000));
+        assertEquals(WatchRegistry.MAX_ENTRIES, watches.entries().size());
+    }
+}